@@ -0,0 +1,318 @@
+package com.example.paymentretry.archive;
+
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only archive of one table's rows, kept as a directory of immutable segments.
+ * A segment is a pair of files:
+ * <ul>
+ *   <li>{@code NNNNNNNNNN.seg} – gzip members of up to {@code blockRecords} NDJSON rows
+ *       each, so the whole file still reads with a plain {@code zcat};</li>
+ *   <li>{@code NNNNNNNNNN.idx} – a sparse index with one fixed-width entry per block
+ *       (id range, created_at range, offset, length), memory-mapped for lookups.</li>
+ * </ul>
+ * Rows are appended in id order, so an id lookup binary-searches the index and inflates a
+ * single block; a created_at range walks the index entries and only inflates blocks that
+ * overlap. The index is renamed into place last, which is what seals a segment.
+ */
+public class SegmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+    // DECIMAL columns come back as BigDecimal with their scale, not as Double
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .enable(StreamWriteFeature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .build();
+    private static final TypeReference<LinkedHashMap<String, Object>> ROW = new TypeReference<>() {};
+
+    private static final int MAGIC = 0x50524158; // "PRAX"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 8;
+    // firstId, lastId, minCreated, maxCreated, offset (longs), length, rows (ints)
+    private static final int ENTRY_BYTES = 48;
+
+    private final String name;
+    private final Path dir;
+    private final int blockRecords;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private int nextSeq;
+
+    public SegmentStore(String name, Path dir, int blockRecords) throws IOException {
+        this.name = name;
+        this.dir = dir;
+        this.blockRecords = blockRecords;
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.sorted().toList()) {
+                String file = p.getFileName().toString();
+                if (file.endsWith(".tmp")) {
+                    Files.delete(p);
+                } else if (file.endsWith(".seg") && !Files.exists(dir.resolve(base(file) + ".idx"))) {
+                    // renamed, but the append died before sealing it
+                    Files.delete(p);
+                } else if (file.endsWith(".idx")) {
+                    segments.add(new Segment(dir.resolve(base(file) + ".seg"), p));
+                    nextSeq = Math.max(nextSeq, Integer.parseInt(base(file)) + 1);
+                }
+            }
+        }
+        logger.info("Opened {} archive at {} with {} segments", name, dir, segments.size());
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Writes {@code rows} as one new segment and makes it readable. Rows must be sorted by id
+     * and carry {@code id} and {@code created_at} columns; JDBC timestamps are stored as ISO
+     * local date-times. Returns only once both files are forced to disk.
+     */
+    public synchronized void append(List<Map<String, Object>> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String base = "%010d".formatted(nextSeq);
+        Path segTmp = dir.resolve(base + ".seg.tmp");
+        Path idxTmp = dir.resolve(base + ".idx.tmp");
+        int blocks = (rows.size() + blockRecords - 1) / blockRecords;
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + blocks * ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(FORMAT);
+
+        try (FileChannel out = FileChannel.open(segTmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (int from = 0; from < rows.size(); from += blockRecords) {
+                List<Map<String, Object>> block = rows.subList(from, Math.min(from + blockRecords, rows.size()));
+                long minCreated = Long.MAX_VALUE;
+                long maxCreated = Long.MIN_VALUE;
+                var raw = new ByteArrayOutputStream();
+                try (var gz = new GZIPOutputStream(raw)) {
+                    for (var row : block) {
+                        var normalized = normalize(row);
+                        long created = createdKey(normalized.get("created_at"));
+                        minCreated = Math.min(minCreated, created);
+                        maxCreated = Math.max(maxCreated, created);
+                        gz.write(MAPPER.writeValueAsBytes(normalized));
+                        gz.write('\n');
+                    }
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(raw.toByteArray());
+                int length = bytes.remaining();
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+                index.putLong(id(block.get(0))).putLong(id(block.get(block.size() - 1)))
+                        .putLong(minCreated).putLong(maxCreated)
+                        .putLong(offset).putInt(length).putInt(block.size());
+                offset += length;
+            }
+            out.force(true);
+        }
+        try (FileChannel out = FileChannel.open(idxTmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            index.flip();
+            while (index.hasRemaining()) {
+                out.write(index);
+            }
+            out.force(true);
+        }
+
+        Path seg = dir.resolve(base + ".seg");
+        Path idx = dir.resolve(base + ".idx");
+        Files.move(segTmp, seg, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(idxTmp, idx, StandardCopyOption.ATOMIC_MOVE);
+        segments.add(new Segment(seg, idx));
+        nextSeq++;
+        logger.info("Sealed {} archive segment {} ({} rows, {} blocks)", name, base, rows.size(), blocks);
+    }
+
+    /**
+     * The archived row with this id. A row archived twice (the process died between sealing
+     * a segment and deleting the source rows) resolves to the newest copy.
+     */
+    public Optional<Map<String, Object>> findById(long id) throws IOException {
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            Segment seg = segments.get(s);
+            int block = seg.blockFor(id);
+            if (block < 0) {
+                continue;
+            }
+            for (var row : seg.read(block)) {
+                if (id(row) == id) {
+                    return Optional.of(row);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Up to {@code limit} rows with {@code from <= created_at < to} and {@code id > afterId},
+     * in id order. Segments are only id-ordered internally, so every overlapping block is
+     * visited, but at most {@code limit} rows are held at a time.
+     */
+    public List<Map<String, Object>> findByCreatedAt(LocalDateTime from, LocalDateTime to,
+                                                     long afterId, int limit) throws IOException {
+        long lo = createdKey(from);
+        long hi = createdKey(to);
+        var matches = new TreeMap<Long, Map<String, Object>>();
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            Segment seg = segments.get(s);
+            for (int b = 0; b < seg.entries; b++) {
+                if (seg.lastId(b) <= afterId || seg.maxCreated(b) < lo || seg.minCreated(b) >= hi
+                        || (matches.size() == limit && seg.firstId(b) > matches.lastKey())) {
+                    continue;
+                }
+                for (var row : seg.read(b)) {
+                    long id = id(row);
+                    long created = createdKey(row.get("created_at"));
+                    if (id <= afterId || created < lo || created >= hi) {
+                        continue;
+                    }
+                    matches.putIfAbsent(id, row);
+                    if (matches.size() > limit) {
+                        matches.pollLastEntry();
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    private static Map<String, Object> normalize(Map<String, Object> row) {
+        var out = new LinkedHashMap<String, Object>(row.size());
+        row.forEach((k, v) -> out.put(k, v instanceof Timestamp t ? t.toLocalDateTime().toString()
+                : v instanceof LocalDateTime d ? d.toString() : v));
+        return out;
+    }
+
+    private static long id(Map<String, Object> row) {
+        return ((Number) row.get("id")).longValue();
+    }
+
+    /**
+     * created_at as microseconds of the local date-time read as UTC; only used for ordering,
+     * so the zone just has to be the same on both sides. Rows without one sort first.
+     */
+    private static long createdKey(Object createdAt) {
+        LocalDateTime t = createdAt instanceof LocalDateTime d ? d
+                : createdAt instanceof String s ? LocalDateTime.parse(s)
+                : null;
+        if (t == null) {
+            return Long.MIN_VALUE;
+        }
+        var instant = t.toInstant(ZoneOffset.UTC);
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    private static String base(String file) {
+        return file.substring(0, file.indexOf('.'));
+    }
+
+    private static final class Segment {
+        final MappedByteBuffer index;
+        final MappedByteBuffer data;
+        final int entries;
+
+        Segment(Path dataFile, Path indexFile) throws IOException {
+            try (FileChannel ch = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                index = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != FORMAT) {
+                throw new IOException("Not an archive index: " + indexFile);
+            }
+            entries = (index.capacity() - HEADER_BYTES) / ENTRY_BYTES;
+            try (FileChannel ch = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+        }
+
+        long firstId(int e) {
+            return index.getLong(at(e));
+        }
+
+        long lastId(int e) {
+            return index.getLong(at(e) + 8);
+        }
+
+        long minCreated(int e) {
+            return index.getLong(at(e) + 16);
+        }
+
+        long maxCreated(int e) {
+            return index.getLong(at(e) + 24);
+        }
+
+        /**
+         * The block whose id range covers {@code id}, or -1. Blocks are contiguous in id
+         * order, so this is a binary search over the mapped entries.
+         */
+        int blockFor(long id) {
+            int lo = 0;
+            int hi = entries - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (lastId(mid) < id) {
+                    lo = mid + 1;
+                } else if (firstId(mid) > id) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        List<Map<String, Object>> read(int e) throws IOException {
+            int offset = (int) index.getLong(at(e) + 32);
+            byte[] gz = new byte[index.getInt(at(e) + 40)];
+            data.get(offset, gz);
+            var rows = new ArrayList<Map<String, Object>>(index.getInt(at(e) + 44));
+            try (var in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(gz)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    rows.add(MAPPER.readValue(line, ROW));
+                }
+            }
+            return rows;
+        }
+
+        private static int at(int e) {
+            return HEADER_BYTES + e * ENTRY_BYTES;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.paymentretry.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small in-memory LRU map bounded by size and, optionally, by time-to-live.
+ * Expired entries are dropped lazily on access; the least recently used entry
+ * is evicted once {@code maxSize} is exceeded. A {@code ttlMillis <= 0} disables expiry.
+ */
+public class BoundedCache<K, V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public BoundedCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (e.isExpired(System.currentTimeMillis())) {
+            entries.remove(key);
+            return null;
+        }
+        return e.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    /**
+     * Inserts the value unless a live entry already exists; returns true if inserted.
+     */
+    public synchronized boolean putIfAbsent(K key, V value) {
+        if (get(key) != null) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    public synchronized V remove(K key) {
+        Entry<V> e = entries.remove(key);
+        return e != null ? e.value() : null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized List<K> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
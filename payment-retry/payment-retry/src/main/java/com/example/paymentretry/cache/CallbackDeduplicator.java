@@ -0,0 +1,86 @@
+package com.example.paymentretry.cache;
+
+import com.example.paymentretry.payload.PaymentCallbackRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Suppresses redelivered gateway callbacks, keyed on (externalReferenceId, status, timestamp).
+ * Claimed keys live in a concurrent set bounded by size; once full, the oldest claims are
+ * forgotten first and treated as new again.
+ * <p>
+ * Every claim has to insert its key anyway, and that insert-if-absent is what settles two
+ * deliveries of the same callback racing each other, so a single concurrent map does the
+ * whole job without a lock; a Bloom filter in front of it would only add a second probe.
+ */
+@Component
+public class CallbackDeduplicator {
+    private final boolean enabled;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Boolean> recent = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> claimOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final Counter suppressed;
+
+    public CallbackDeduplicator(
+            MeterRegistry meterRegistry,
+            @Value("${payment.callback.dedup.enabled:true}") boolean enabled,
+            @Value("${payment.callback.dedup.max-keys:200000}") int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("max-keys must be >= 1");
+        }
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        this.suppressed = Counter.builder("payment.callbacks.duplicates.suppressed")
+                .description("Gateway callbacks dropped as redeliveries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the callback as seen. Returns false if it is a duplicate that should be suppressed.
+     */
+    public boolean claim(PaymentCallbackRequest cb) {
+        if (!enabled) {
+            return true;
+        }
+        String key = keyOf(cb);
+        if (recent.putIfAbsent(key, Boolean.TRUE) != null) {
+            suppressed.increment();
+            return false;
+        }
+        claimOrder.add(key);
+        if (claimed.incrementAndGet() > maxKeys) {
+            evictOldest();
+        }
+        return true;
+    }
+
+    /**
+     * Forgets a claimed callback, e.g. when applying it failed and a redelivery must go through.
+     */
+    public void release(PaymentCallbackRequest cb) {
+        if (enabled) {
+            recent.remove(keyOf(cb));
+        }
+    }
+
+    // a released key keeps its place in the queue, so its eviction may forget a later claim of
+    // the same key early; that only lets one redelivery through
+    private void evictOldest() {
+        String oldest = claimOrder.poll();
+        if (oldest != null) {
+            recent.remove(oldest);
+            claimed.decrementAndGet();
+        }
+    }
+
+    private static String keyOf(PaymentCallbackRequest cb) {
+        return cb.getExternalReferenceId() + '|' + cb.getStatus().toUpperCase() + '|' + cb.getTimestamp();
+    }
+}
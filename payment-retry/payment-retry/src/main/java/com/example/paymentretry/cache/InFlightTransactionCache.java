@@ -0,0 +1,91 @@
+package com.example.paymentretry.cache;
+
+import com.example.paymentretry.model.RetryConfiguration;
+import com.example.paymentretry.model.RetryStrategy;
+import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.model.TransactionStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transactions currently waiting on the gateway, keyed by external reference, so callbacks
+ * can be resolved without a lookup. Filled when a payment or retry is sent and evicted once
+ * the transaction reaches SUCCESS or FAILED; misses fall back to the database.
+ */
+@Component
+public class InFlightTransactionCache {
+    private final BoundedCache<String, InFlightTransaction> entries;
+
+    public InFlightTransactionCache(
+            @Value("${payment.inflight-cache.max-size:100000}") int maxSize,
+            @Value("${payment.inflight-cache.ttl:3600000}") long ttlMillis) {
+        this.entries = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    public void put(Transaction tx, RetryConfiguration rc) {
+        if (tx.getExternalReferenceId() != null) {
+            entries.put(tx.getExternalReferenceId(), InFlightTransaction.of(tx, rc));
+        }
+    }
+
+    public void put(InFlightTransaction tx) {
+        if (tx.externalReferenceId() != null) {
+            entries.put(tx.externalReferenceId(), tx);
+        }
+    }
+
+    public InFlightTransaction get(String externalReferenceId) {
+        return entries.get(externalReferenceId);
+    }
+
+    public void evict(String externalReferenceId) {
+        if (externalReferenceId != null) {
+            entries.remove(externalReferenceId);
+        }
+    }
+
+    /**
+     * Snapshot of what callback handling needs from a transaction and its retry config.
+     * Retry fields are null when the transaction has no retry configuration.
+     */
+    public record InFlightTransaction(
+            Long transactionId,
+            Long userId,
+            String externalReferenceId,
+            String gateway,
+            Long paymentMethodId,
+            TransactionStatus status,
+            Integer currentAttempts,
+            Integer maxRetries,
+            Long retryInterval,
+            RetryStrategy strategy
+    ) {
+        public static InFlightTransaction of(Transaction tx, RetryConfiguration rc) {
+            return new InFlightTransaction(
+                    tx.getId(),
+                    tx.getUser() != null ? tx.getUser().getId() : null,
+                    tx.getExternalReferenceId(),
+                    tx.getGateway(),
+                    tx.getPaymentMethodId(),
+                    tx.getStatus(),
+                    rc != null ? rc.getCurrentAttempts() : null,
+                    rc != null ? rc.getMaxRetries() : null,
+                    rc != null ? rc.getRetryInterval() : null,
+                    rc != null ? rc.getStrategy() : null
+            );
+        }
+
+        public InFlightTransaction withStatus(TransactionStatus newStatus) {
+            return new InFlightTransaction(transactionId, userId, externalReferenceId, gateway,
+                    paymentMethodId, newStatus, currentAttempts, maxRetries, retryInterval, strategy);
+        }
+
+        public boolean hasRetryConfig() {
+            return maxRetries != null;
+        }
+
+        public int attempts() {
+            return currentAttempts != null ? currentAttempts : 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.paymentretry.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Negative cache of payment methods that recently returned a hard decline.
+ * Any other retry on the same payment method would fail the same way, so the
+ * scheduler consults this before calling the gateway.
+ */
+@Component
+public class PaymentMethodDeclineCache {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentMethodDeclineCache.class);
+
+    private static final Set<String> HARD_DECLINE_CODES = Set.of(
+            "INSUFFICIENT_FUNDS",
+            "CARD_DECLINED",
+            "DO_NOT_HONOR",
+            "INVALID_CARD",
+            "EXPIRED_CARD",
+            "LOST_CARD",
+            "STOLEN_CARD",
+            "ACCOUNT_CLOSED"
+    );
+
+    private final BoundedCache<Long, Decline> declines;
+    private final long ttlMillis;
+
+    public PaymentMethodDeclineCache(
+            @Value("${payment.decline-cache.ttl:900000}") long ttlMillis,
+            @Value("${payment.decline-cache.max-size:10000}") int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.declines = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    public static boolean isHardDecline(String errorCode) {
+        return errorCode != null && HARD_DECLINE_CODES.contains(errorCode);
+    }
+
+    /**
+     * Marks the payment method as poisoned if the error is a hard decline; no-op otherwise.
+     */
+    public void recordDecline(Long paymentMethodId, String errorCode) {
+        if (paymentMethodId == null || !isHardDecline(errorCode)) {
+            return;
+        }
+        var until = LocalDateTime.now().plusNanos(ttlMillis * 1_000_000L);
+        declines.put(paymentMethodId, new Decline(errorCode, until));
+        logger.info("Payment method {} hard-declined with {}, suppressing retries until {}",
+                paymentMethodId, errorCode, until);
+    }
+
+    /**
+     * Returns when the decline for this payment method lapses, if one is active.
+     */
+    public Optional<LocalDateTime> declinedUntil(Long paymentMethodId) {
+        if (paymentMethodId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(declines.get(paymentMethodId)).map(Decline::until);
+    }
+
+    public void invalidate(Long paymentMethodId) {
+        if (paymentMethodId != null && declines.remove(paymentMethodId) != null) {
+            logger.info("Cleared hard-decline entry for payment method {}", paymentMethodId);
+        }
+    }
+
+    public record Decline(String errorCode, LocalDateTime until) {}
+}
@@ -0,0 +1,133 @@
+package com.example.paymentretry.cache;
+
+import com.example.paymentretry.event.TransactionStatusChangedEvent;
+import com.example.paymentretry.model.TransactionStatus;
+import com.example.paymentretry.payload.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of {@link TransactionResponse}s that can no longer change, which means
+ * SUCCESS only. FAILED is not kept even with no attempts left: a re-drive or a late gateway
+ * success can still move it, and only the node that made that change evicts its entry, so
+ * every other node would serve the stale FAILED until the TTL ran out. Concurrent misses for
+ * the same id share one load (single-flight); other results are returned but not kept.
+ * Entries carry the owner so callers can still enforce access on hits.
+ */
+@Component
+public class TerminalTransactionCache {
+    private final BoundedCache<Long, Owned> entries;
+    private final ConcurrentHashMap<Long, CompletableFuture<Owned>> loading = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public TerminalTransactionCache(
+            MeterRegistry meterRegistry,
+            @Value("${payment.read-cache.max-size:50000}") int maxSize,
+            @Value("${payment.read-cache.ttl:3600000}") long ttlMillis) {
+        this.entries = new BoundedCache<>(maxSize, ttlMillis);
+        this.hits = Counter.builder("transaction.read-cache.requests").tag("result", "hit")
+                .description("Transaction reads served from the terminal-state cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("transaction.read-cache.requests").tag("result", "miss")
+                .description("Transaction reads that had to be loaded")
+                .register(meterRegistry);
+        Gauge.builder("transaction.read-cache.size", entries, BoundedCache::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached response for {@code txId}, or runs {@code loader} once for all
+     * concurrent callers and caches the result if it is terminal. Loader exceptions are
+     * rethrown to every waiting caller.
+     */
+    public Owned get(Long txId, Supplier<Owned> loader) {
+        Owned cached = entries.get(txId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<Owned> mine = new CompletableFuture<>();
+        CompletableFuture<Owned> existing = loading.putIfAbsent(txId, mine);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            Owned loaded = loader.get();
+            if (isTerminal(loaded.response())) {
+                entries.put(txId, loaded);
+            }
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(txId, mine);
+        }
+    }
+
+    /**
+     * The cached entry for {@code txId}, or null; never loads.
+     */
+    public Owned peek(Long txId) {
+        Owned cached = entries.get(txId);
+        if (cached != null) {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    public void evict(Long txId) {
+        entries.remove(txId);
+    }
+
+    /** Payment method details are embedded in cached responses, so edits must drop them. */
+    public void evictByPaymentMethod(Long paymentMethodId) {
+        for (Long txId : entries.keys()) {
+            Owned o = entries.get(txId);
+            if (o != null && o.response().getPaymentMethod() != null
+                    && paymentMethodId.equals(o.response().getPaymentMethod().getId())) {
+                entries.remove(txId);
+            }
+        }
+    }
+
+    // any committed transition invalidates the snapshot
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        evict(event.transactionId());
+    }
+
+    // SUCCESS has no successors, see TransactionStatus#successors()
+    static boolean isTerminal(TransactionResponse r) {
+        return r.getStatus() == TransactionStatus.SUCCESS;
+    }
+
+    private static Owned join(CompletableFuture<Owned> f) {
+        try {
+            return f.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * A response with its owner and the ETag of the versions it was built from, so a hit can
+     * answer a conditional GET as well.
+     */
+    public record Owned(Long ownerId, TransactionResponse response, String etag) {}
+}
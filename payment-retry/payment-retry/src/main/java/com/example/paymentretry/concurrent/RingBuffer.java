@@ -0,0 +1,103 @@
+package com.example.paymentretry.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer ring buffer (Vyukov's sequence-per-slot design).
+ * {@link #offer} never blocks: it returns false when the buffer is full so callers can apply
+ * their own backpressure.
+ */
+public class RingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPos = new AtomicLong();
+    private final AtomicLong consumerPos = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("item");
+        }
+        long pos = producerPos.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (producerPos.compareAndSet(pos, pos + 1)) {
+                    slots.set(idx, item);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = producerPos.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = producerPos.get();
+            }
+        }
+    }
+
+    public T poll() {
+        long pos = consumerPos.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (consumerPos.compareAndSet(pos, pos + 1)) {
+                    T item = slots.get(idx);
+                    slots.set(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return item;
+                }
+                pos = consumerPos.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = consumerPos.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} items into {@code sink}; returns how many were moved.
+     */
+    public int drainTo(Collection<? super T> sink, int max) {
+        int n = 0;
+        T item;
+        while (n < max && (item = poll()) != null) {
+            sink.add(item);
+            n++;
+        }
+        return n;
+    }
+
+    /** Approximate number of buffered items. */
+    public int size() {
+        long size = producerPos.get() - consumerPos.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.paymentretry.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Polls the replica's replication delay and marks it unusable while it is further behind
+ * than the configured tolerance, stopped, or unreachable. Reads fall back to the primary
+ * until the next check finds it caught up. Starts unusable until the first check passes.
+ */
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    private volatile boolean usable = false;
+    private volatile long lagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMillis, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLagMillis;
+        Gauge.builder("datasource.replica.lag", this, m -> m.lagSeconds)
+                .baseUnit("seconds")
+                .description("Replication delay of the read replica, -1 when unknown")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.datasource.replica.lag-check-interval:5000}")
+    public void check() {
+        Long lag;
+        try {
+            // empty result: not configured as a replica (e.g. pointed at the primary in dev)
+            lag = replica.query("SHOW REPLICA STATUS", rs -> {
+                if (!rs.next()) {
+                    return 0L;
+                }
+                long seconds = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? null : seconds;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Replica lag check failed: {}", e.getMessage());
+            lag = null;
+        }
+
+        lagSeconds = lag != null ? lag : -1;
+        boolean nowUsable = lag != null && lag * 1000 <= maxLagMillis;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("Replica within lag tolerance ({}s), routing read-only transactions to it", lag);
+            } else {
+                logger.warn("Replica unusable (lag={}s, tolerance={}ms), routing reads to primary",
+                        lag, maxLagMillis);
+            }
+        }
+        usable = nowUsable;
+    }
+}
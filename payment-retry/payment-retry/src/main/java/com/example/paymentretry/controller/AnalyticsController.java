@@ -30,6 +30,14 @@ public class AnalyticsController {
         return analyticsService.getTransactionTrendForLastDays(days);
     }
 
+    /**
+     * ADMIN only: current transaction counts by status and gateway.
+     */
+    @GetMapping("/transactions/status-counts")
+    public ResponseEntity<CustomApiResponse<Map<String, Object>>> getLiveStatusCounts() {
+        return analyticsService.getLiveStatusCounts();
+    }
+
     /**
      * ADMIN only: overall retry success rate.
      */
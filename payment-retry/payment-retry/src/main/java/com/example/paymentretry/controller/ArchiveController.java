@@ -0,0 +1,71 @@
+package com.example.paymentretry.controller;
+
+import com.example.paymentretry.payload.CursorPagedResponse;
+import com.example.paymentretry.payload.CustomApiResponse;
+import com.example.paymentretry.service.ArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Read-only access to archived transactions and error logs. Rows come back with their
+ * original column names, as they were when archived.
+ */
+@RestController
+@RequestMapping("/api/archive")
+@PreAuthorize("hasRole('ADMIN')")
+public class ArchiveController {
+    @Autowired
+    private final ArchiveService archiveService;
+
+    public ArchiveController(ArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
+
+    @GetMapping("/transactions/{id}")
+    public ResponseEntity<CustomApiResponse<Map<String, Object>>> getTransaction(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(archiveService.getTransaction(id), "Fetched archived transaction", true)
+        );
+    }
+
+    @GetMapping("/transactions")
+    public ResponseEntity<CustomApiResponse<CursorPagedResponse<Map<String, Object>>>> getTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(archiveService.getTransactions(from, to, cursor, size),
+                        "Fetched archived transactions", true)
+        );
+    }
+
+    @GetMapping("/error-logs/{id}")
+    public ResponseEntity<CustomApiResponse<Map<String, Object>>> getErrorLog(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(archiveService.getErrorLog(id), "Fetched archived error log", true)
+        );
+    }
+
+    @GetMapping("/error-logs")
+    public ResponseEntity<CustomApiResponse<CursorPagedResponse<Map<String, Object>>>> getErrorLogs(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(archiveService.getErrorLogs(from, to, cursor, size),
+                        "Fetched archived error logs", true)
+        );
+    }
+}
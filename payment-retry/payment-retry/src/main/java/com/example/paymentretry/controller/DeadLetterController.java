@@ -0,0 +1,85 @@
+package com.example.paymentretry.controller;
+
+import com.example.paymentretry.payload.CustomApiResponse;
+import com.example.paymentretry.payload.DeadLetterFilter;
+import com.example.paymentretry.payload.DeadLetterResponse;
+import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.payload.RedriveJobStatus;
+import com.example.paymentretry.service.DeadLetterService;
+import com.example.paymentretry.service.RedriveJobService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/dead-letters")
+@PreAuthorize("hasRole('ADMIN')")
+public class DeadLetterController {
+    @Autowired
+    private final DeadLetterService deadLetterService;
+    @Autowired
+    private final RedriveJobService redriveJobService;
+
+    public DeadLetterController(DeadLetterService deadLetterService, RedriveJobService redriveJobService) {
+        this.deadLetterService = deadLetterService;
+        this.redriveJobService = redriveJobService;
+    }
+
+    @GetMapping
+    public ResponseEntity<CustomApiResponse<PagedResponse<DeadLetterResponse>>> getDeadLetters(
+            @RequestParam(required = false) String errorCode,
+            @RequestParam(required = false) String gateway,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        var filter = new DeadLetterFilter();
+        filter.setErrorCode(errorCode);
+        filter.setGateway(gateway);
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setMinAmount(minAmount);
+        filter.setMaxAmount(maxAmount);
+        PagedResponse<DeadLetterResponse> pr = deadLetterService.getDeadLetters(filter, page, size);
+        return ResponseEntity.ok(
+                CustomApiResponse.success(pr, "Fetched dead letters", true)
+        );
+    }
+
+    /**
+     * Starts a background re-drive of every dead letter matching the filter; poll the
+     * returned job for progress.
+     */
+    @PostMapping("/redrive")
+    public ResponseEntity<CustomApiResponse<RedriveJobStatus>> startRedrive(
+            @Valid @RequestBody DeadLetterFilter filter) {
+        RedriveJobStatus job = redriveJobService.start(filter);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                CustomApiResponse.success(job, "Re-drive job started", true)
+        );
+    }
+
+    @GetMapping("/redrive/{jobId}")
+    public ResponseEntity<CustomApiResponse<RedriveJobStatus>> getRedrive(@PathVariable String jobId) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(redriveJobService.get(jobId), "Fetched re-drive job", true)
+        );
+    }
+
+    @DeleteMapping("/redrive/{jobId}")
+    public ResponseEntity<CustomApiResponse<RedriveJobStatus>> cancelRedrive(@PathVariable String jobId) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(redriveJobService.cancel(jobId), "Re-drive job cancellation requested", true)
+        );
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.paymentretry.controller;
+
+import com.example.paymentretry.payload.CursorPagedResponse;
+import com.example.paymentretry.payload.CustomApiResponse;
+import com.example.paymentretry.payload.ErrorLogResponse;
+import com.example.paymentretry.payload.ExportFormat;
+import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.service.ErrorLogService;
+import com.example.paymentretry.service.StreamingExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/error-logs")
+@PreAuthorize("hasRole('ADMIN')")
+public class ErrorLogController {
+    @Autowired
+    private final ErrorLogService errorLogService;
+    @Autowired
+    private final StreamingExporter streamingExporter;
+
+    public ErrorLogController(ErrorLogService errorLogService, StreamingExporter streamingExporter) {
+        this.errorLogService = errorLogService;
+        this.streamingExporter = streamingExporter;
+    }
+
+    @GetMapping
+    public ResponseEntity<CustomApiResponse<PagedResponse<ErrorLogResponse>>> getErrorLogs(
+            @RequestParam(required = false) String errorCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        PagedResponse<ErrorLogResponse> pr = errorLogService
+                .getErrorLogs(errorCode, startDate, endDate, page, size);
+        return ResponseEntity.ok(
+                CustomApiResponse.success(pr, "Fetched error logs", true)
+        );
+    }
+
+    /**
+     * Keyset listing for deep paging: pass back {@code nextCursor} from the
+     * previous response; omit it for the newest entries.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CustomApiResponse<CursorPagedResponse<ErrorLogResponse>>> getErrorLogsByCursor(
+            @RequestParam(required = false) String errorCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        CursorPagedResponse<ErrorLogResponse> pr = errorLogService
+                .getErrorLogsByCursor(errorCode, startDate, endDate, cursor, size, includeTotal);
+        return ResponseEntity.ok(
+                CustomApiResponse.success(pr, "Fetched error logs", true)
+        );
+    }
+
+    /**
+     * Streams all matching error logs as NDJSON or CSV (optionally gzipped) in constant memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportErrorLogs(
+            @RequestParam(required = false) String errorCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ExportFormat fmt = ExportFormat.from(format);
+        StreamingResponseBody body = errorLogService.exportErrorLogs(errorCode, startDate, endDate, fmt, gzip);
+        return ResponseEntity.ok()
+                .headers(streamingExporter.headers("error-logs", fmt, gzip))
+                .body(body);
+    }
+
+    @GetMapping("/common")
+    public ResponseEntity<CustomApiResponse<List<Map<String, Object>>>> getMostCommonErrorCodes(
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(
+                CustomApiResponse.success(errorLogService.getMostCommonErrorCodes(limit),
+                        "Most common error codes fetched", true)
+        );
+    }
+}
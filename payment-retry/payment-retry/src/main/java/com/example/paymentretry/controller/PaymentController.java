@@ -1,34 +1,106 @@
 package com.example.paymentretry.controller;
 
+import com.example.paymentretry.payload.BatchItemResult;
 import com.example.paymentretry.payload.CustomApiResponse;
 import com.example.paymentretry.payload.MessageResponse;
 import com.example.paymentretry.payload.PaymentCallbackRequest;
+import com.example.paymentretry.service.CallbackIngestionService;
 import com.example.paymentretry.service.PaymentService;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping("/api/payments")
 public class PaymentController {
     @Autowired
     private final PaymentService paymentService;
+    @Autowired
+    private final CallbackIngestionService callbackIngestionService;
+    @Autowired
+    private final Validator validator;
 
-    public PaymentController(PaymentService paymentService) {
+    @Value("${payment.callback.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    public PaymentController(PaymentService paymentService, CallbackIngestionService callbackIngestionService, Validator validator) {
         this.paymentService = paymentService;
+        this.callbackIngestionService = callbackIngestionService;
+        this.validator = validator;
     }
 
     @PostMapping("/callback")
     public ResponseEntity<CustomApiResponse<MessageResponse>> handlePaymentCallback(
             @Valid @RequestBody PaymentCallbackRequest callbackRequest) {
 
+        if (callbackIngestionService.isAsyncEnabled() && callbackIngestionService.enqueue(callbackRequest)) {
+            MessageResponse msg = new MessageResponse("Callback accepted for processing");
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new CustomApiResponse<>(HttpStatus.ACCEPTED, msg.getMessage(), msg, true));
+        }
+
         paymentService.processPaymentCallback(callbackRequest);
         MessageResponse msg = new MessageResponse("Callback processed successfully");
         return ResponseEntity.ok(CustomApiResponse.success(msg, msg.getMessage(), true));
     }
+
+    /**
+     * Bulk variant for gateways that deliver settlement notifications in batches.
+     * Invalid items are reported individually; the rest are applied in one DB transaction.
+     */
+    @PostMapping("/callbacks/batch")
+    public ResponseEntity<CustomApiResponse<List<BatchItemResult<String>>>> handlePaymentCallbackBatch(
+            @RequestBody List<PaymentCallbackRequest> callbackRequests) {
+
+        if (callbackRequests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(CustomApiResponse.error(HttpStatus.BAD_REQUEST,
+                    "Batch size " + callbackRequests.size() + " exceeds limit of " + maxBatchSize, false));
+        }
+
+        List<BatchItemResult<String>> results = new ArrayList<>(Collections.nCopies(callbackRequests.size(), null));
+        List<PaymentCallbackRequest> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < callbackRequests.size(); i++) {
+            if (callbackRequests.get(i) == null) {
+                results.set(i, BatchItemResult.failed(i, "INVALID", "callback must not be null"));
+                continue;
+            }
+            var violations = validator.validate(callbackRequests.get(i));
+            if (violations.isEmpty()) {
+                valid.add(callbackRequests.get(i));
+                validIndexes.add(i);
+            } else {
+                results.set(i, BatchItemResult.failed(i, "INVALID", violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            var applied = paymentService.processPaymentCallbacks(valid);
+            for (int j = 0; j < applied.size(); j++) {
+                var r = applied.get(j);
+                r.setIndex(validIndexes.get(j));
+                results.set(r.getIndex(), r);
+            }
+        }
+
+        long ok = results.stream().filter(BatchItemResult::isSuccess).count();
+        return ResponseEntity.ok(CustomApiResponse.success(
+                results, ok + " of " + results.size() + " callbacks applied", true));
+    }
 }
@@ -9,9 +9,11 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/payment-methods")
@@ -32,21 +34,31 @@ public class PaymentMethodController {
     // Get all payment methods for the current user
     @GetMapping
     public ResponseEntity<CustomApiResponse<?>> getUserPaymentMethods(
-            @AuthenticationPrincipal UserDetailsImpl currentUser) {
+            @AuthenticationPrincipal UserDetailsImpl currentUser,
+            WebRequest webRequest) {
         logger.info("currentUser id={}, email={}, role={}",
                 currentUser.getId(),
                 currentUser.getUsername(),  // you return email as username
                 currentUser.getRole());
 
-        return ResponseEntity.ok(paymentMethodService.getUserPaymentMethods(currentUser.getId()));
+        String etag = paymentMethodService.getUserPaymentMethodsETag(currentUser.getId());
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(paymentMethodService.getUserPaymentMethods(currentUser.getId()));
     }
 
     // Get payment method by ID
     @GetMapping("/{id}")
     public ResponseEntity<CustomApiResponse<?>> getPaymentMethodById(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
-            @PathVariable Long id) {
-        return ResponseEntity.ok(paymentMethodService.getPaymentMethodById(currentUser.getId(), id));
+            @PathVariable Long id,
+            WebRequest webRequest) {
+        String etag = paymentMethodService.getPaymentMethodETag(currentUser.getId(), id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(paymentMethodService.getPaymentMethodById(currentUser.getId(), id));
     }
 
     // Update an existing payment method
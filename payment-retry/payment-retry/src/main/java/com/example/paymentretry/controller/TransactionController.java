@@ -1,46 +1,153 @@
 package com.example.paymentretry.controller;
 
+import com.example.paymentretry.event.TransactionEventHub;
 import com.example.paymentretry.payload.*;
 import com.example.paymentretry.security.UserDetailsImpl;
+import com.example.paymentretry.service.IdempotencyService;
+import com.example.paymentretry.service.StreamingExporter;
 import com.example.paymentretry.service.TransactionService;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/transactions")
 public class TransactionController {
     @Autowired
     private final TransactionService transactionService;
+    @Autowired
+    private final IdempotencyService idempotencyService;
+
+    @Autowired
+    private final Validator validator;
+    @Autowired
+    private final StreamingExporter streamingExporter;
+    @Autowired
+    private final TransactionEventHub transactionEventHub;
 
-    public TransactionController(TransactionService transactionService) {
+    @Value("${payment.transaction.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    public TransactionController(TransactionService transactionService, IdempotencyService idempotencyService, Validator validator, StreamingExporter streamingExporter, TransactionEventHub transactionEventHub) {
         this.transactionService = transactionService;
+        this.idempotencyService = idempotencyService;
+        this.validator = validator;
+        this.streamingExporter = streamingExporter;
+        this.transactionEventHub = transactionEventHub;
     }
 
     @PostMapping
     public ResponseEntity<CustomApiResponse<TransactionResponse>> createTransaction(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody @Valid TransactionRequest transactionRequest) {
 
-        TransactionResponse resp = transactionService.createTransaction(
-                currentUser.getId(), transactionRequest);
+        TransactionResponse resp;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            resp = transactionService.createTransaction(currentUser.getId(), transactionRequest);
+        } else {
+            resp = idempotencyService.execute(currentUser.getId(), idempotencyKey, transactionRequest,
+                    () -> transactionService.createTransaction(currentUser.getId(), transactionRequest),
+                    txId -> transactionService.getTransactionById(currentUser.getId(), txId));
+        }
         return ResponseEntity.ok(
                 CustomApiResponse.success(resp, "Transaction created", true)
         );
     }
 
+    /**
+     * Bulk creation for merchant integrations. Invalid items are reported individually;
+     * the rest are created in one DB transaction and dispatched asynchronously.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<CustomApiResponse<List<BatchItemResult<TransactionResponse>>>> createTransactions(
+            @AuthenticationPrincipal UserDetailsImpl currentUser,
+            @RequestBody List<TransactionRequest> transactionRequests) {
+
+        if (transactionRequests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body(CustomApiResponse.error(HttpStatus.BAD_REQUEST,
+                    "Batch size " + transactionRequests.size() + " exceeds limit of " + maxBatchSize, false));
+        }
+
+        List<BatchItemResult<TransactionResponse>> results =
+                new ArrayList<>(Collections.nCopies(transactionRequests.size(), null));
+        List<TransactionRequest> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < transactionRequests.size(); i++) {
+            if (transactionRequests.get(i) == null) {
+                results.set(i, BatchItemResult.failed(i, "INVALID", "transaction must not be null"));
+                continue;
+            }
+            var violations = validator.validate(transactionRequests.get(i));
+            if (violations.isEmpty()) {
+                valid.add(transactionRequests.get(i));
+                validIndexes.add(i);
+            } else {
+                results.set(i, BatchItemResult.failed(i, "INVALID", violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            var created = transactionService.createTransactions(currentUser.getId(), valid);
+            for (int j = 0; j < created.size(); j++) {
+                var r = created.get(j);
+                r.setIndex(validIndexes.get(j));
+                results.set(r.getIndex(), r);
+            }
+        }
+
+        long ok = results.stream().filter(BatchItemResult::isSuccess).count();
+        return ResponseEntity.ok(CustomApiResponse.success(
+                results, ok + " of " + results.size() + " transactions created", true));
+    }
+
     @GetMapping
     public ResponseEntity<CustomApiResponse<PagedResponse<TransactionResponse>>> getUserTransactions(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
 
-        PagedResponse<TransactionResponse> pr = transactionService
-                .getUserTransactions(currentUser.getId(), status, page, size);
+        var versions = transactionService
+                .getUserTransactionVersions(currentUser.getId(), status, page, size);
+        if (webRequest.checkNotModified(versions.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versions.etag()).build();
+        }
+        PagedResponse<TransactionResponse> pr = transactionService.getTransactionPage(versions);
+        return ResponseEntity.ok().eTag(versions.etag()).body(
+                CustomApiResponse.success(pr, "Fetched user transactions", true)
+        );
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<CustomApiResponse<CursorPagedResponse<TransactionResponse>>> getUserTransactionsByCursor(
+            @AuthenticationPrincipal UserDetailsImpl currentUser,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        CursorPagedResponse<TransactionResponse> pr = transactionService
+                .getUserTransactionsByCursor(currentUser.getId(), status, cursor, size, includeTotal);
         return ResponseEntity.ok(
                 CustomApiResponse.success(pr, "Fetched user transactions", true)
         );
@@ -49,15 +156,44 @@ public class TransactionController {
     @GetMapping("/{id}")
     public ResponseEntity<CustomApiResponse<TransactionResponse>> getTransactionById(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            WebRequest webRequest) {
 
-        TransactionResponse resp = transactionService
-                .getTransactionById(currentUser.getId(), id);
-        return ResponseEntity.ok(
-                CustomApiResponse.success(resp, "Fetched transaction", true)
+        // a terminal-cache hit answers both the conditional check and the body
+        var owned = transactionService.getCachedTransaction(currentUser.getId(), id);
+        String etag = owned != null ? owned.etag() : transactionService.getTransactionETag(currentUser.getId(), id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        if (owned == null) {
+            owned = transactionService.getOwnedTransaction(currentUser.getId(), id);
+        }
+        return ResponseEntity.ok().eTag(owned.etag()).body(
+                CustomApiResponse.success(owned.response(), "Fetched transaction", true)
         );
     }
 
+    /**
+     * Pushes status changes of one transaction over SSE, starting with a snapshot of its
+     * current state; the stream completes once the transaction reaches SUCCESS or FAILED.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTransactionEvents(
+            @AuthenticationPrincipal UserDetailsImpl currentUser,
+            @PathVariable Long id) {
+
+        return transactionEventHub.subscribeTransaction(id,
+                () -> transactionService.getTransactionById(currentUser.getId(), id));
+    }
+
+    /**
+     * Pushes status changes of every transaction the current user owns over SSE.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserEvents(@AuthenticationPrincipal UserDetailsImpl currentUser) {
+        return transactionEventHub.subscribeUser(currentUser.getId());
+    }
+
     @PutMapping("/{id}/retry")
     public ResponseEntity<CustomApiResponse<MessageResponse>> manualRetry(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
@@ -78,12 +214,51 @@ public class TransactionController {
             @RequestParam(required = false) String status,
             @RequestParam(required = false) Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+
+        var versions = transactionService.getAllTransactionVersions(status, userId, page, size);
+        if (webRequest.checkNotModified(versions.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(versions.etag()).build();
+        }
+        PagedResponse<TransactionResponse> pr = transactionService.getTransactionPage(versions);
+        return ResponseEntity.ok().eTag(versions.etag()).body(
+                CustomApiResponse.success(pr, "Fetched all transactions", true)
+        );
+    }
+
+    @GetMapping("/all/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CustomApiResponse<CursorPagedResponse<TransactionResponse>>> getAllTransactionsByCursor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
 
-        PagedResponse<TransactionResponse> pr = transactionService
-                .getAllTransactions(status, userId, page, size);
+        CursorPagedResponse<TransactionResponse> pr = transactionService
+                .getAllTransactionsByCursor(status, userId, cursor, size, includeTotal);
         return ResponseEntity.ok(
                 CustomApiResponse.success(pr, "Fetched all transactions", true)
         );
     }
+
+    /**
+     * Streams all matching transactions as NDJSON or CSV (optionally gzipped) in constant memory;
+     * use this instead of paging through /all for bulk exports.
+     */
+    @GetMapping("/all/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ExportFormat fmt = ExportFormat.from(format);
+        StreamingResponseBody body = transactionService.exportTransactions(status, userId, fmt, gzip);
+        return ResponseEntity.ok()
+                .headers(streamingExporter.headers("transactions", fmt, gzip))
+                .body(body);
+    }
 }
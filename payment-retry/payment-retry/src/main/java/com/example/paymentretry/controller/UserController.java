@@ -3,6 +3,7 @@ package com.example.paymentretry.controller;
 import com.example.paymentretry.model.User;
 import com.example.paymentretry.payload.CustomApiResponse;
 import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.payload.UserSummary;
 import com.example.paymentretry.security.UserDetailsImpl;
 import com.example.paymentretry.service.UserService;
 
@@ -33,7 +34,7 @@ public class UserController {
     }
 
     @GetMapping
-    public ResponseEntity<CustomApiResponse<PagedResponse<User>>> getAllUsers(
+    public ResponseEntity<CustomApiResponse<PagedResponse<UserSummary>>> getAllUsers(
             @AuthenticationPrincipal UserDetailsImpl currentUser,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
@@ -0,0 +1,200 @@
+package com.example.paymentretry.event;
+
+import com.example.paymentretry.payload.TransactionResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of committed status changes to SSE subscribers, either for a single
+ * transaction or for everything a user owns. Each subscriber gets a bounded queue drained by
+ * its own virtual thread, so a slow client never holds up the publisher or other clients;
+ * a subscriber whose queue overflows is disconnected and is expected to reconnect.
+ */
+@Component
+public class TransactionEventHub {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionEventHub.class);
+
+    private final long sseTimeout;
+    private final int queueCapacity;
+    private final long heartbeatInterval;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> byTransaction = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Subscriber>> byUser = new ConcurrentHashMap<>();
+
+    public TransactionEventHub(
+            @Value("${payment.events.sse-timeout:1800000}") long sseTimeout,
+            @Value("${payment.events.queue-capacity:256}") int queueCapacity,
+            @Value("${payment.events.heartbeat-interval:15000}") long heartbeatInterval) {
+        this.sseTimeout = sseTimeout;
+        this.queueCapacity = queueCapacity;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Streams changes of one transaction, starting with its current state, and completes
+     * once it reaches a terminal status. The snapshot is loaded only after the subscriber is
+     * registered, so a change committing around the load is either in the snapshot or queued;
+     * queued events older than the snapshot's last update are dropped as already covered.
+     * Whatever the snapshot load throws is passed on.
+     */
+    public SseEmitter subscribeTransaction(Long transactionId, Supplier<TransactionResponse> snapshot) {
+        var sub = new Subscriber(byTransaction, transactionId, true);
+        register(sub);
+        TransactionResponse current;
+        try {
+            current = snapshot.get();
+        } catch (RuntimeException ex) {
+            sub.close();
+            throw ex;
+        }
+        if (current.getUpdatedAt() != null) {
+            sub.queue.removeIf(event -> event.occurredAt().isBefore(current.getUpdatedAt()));
+        }
+        try {
+            sub.emitter.send(SseEmitter.event().name("snapshot").data(current));
+        } catch (IOException ex) {
+            sub.close();
+            return sub.emitter;
+        }
+        if (TransactionStatusChangedEvent.isTerminal(current.getStatus())) {
+            sub.emitter.complete();
+            sub.close();
+            return sub.emitter;
+        }
+        sub.start();
+        return sub.emitter;
+    }
+
+    /** Streams status changes of every transaction the user owns, until the client disconnects. */
+    public SseEmitter subscribeUser(Long userId) {
+        var sub = new Subscriber(byUser, userId, false);
+        register(sub);
+        sub.start();
+        return sub.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        deliver(byTransaction.get(event.transactionId()), event);
+        if (event.userId() != null) {
+            deliver(byUser.get(event.userId()), event);
+        }
+    }
+
+    public int subscriberCount() {
+        return byTransaction.values().stream().mapToInt(Set::size).sum()
+                + byUser.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        byTransaction.values().forEach(set -> set.forEach(Subscriber::complete));
+        byUser.values().forEach(set -> set.forEach(Subscriber::complete));
+    }
+
+    private void deliver(Set<Subscriber> subs, TransactionStatusChangedEvent event) {
+        if (subs == null) {
+            return;
+        }
+        for (Subscriber sub : subs) {
+            if (!sub.queue.offer(event)) {
+                logger.warn("Dropping slow SSE subscriber for key {}", sub.key);
+                sub.complete();
+            }
+        }
+    }
+
+    private void register(Subscriber sub) {
+        sub.index.computeIfAbsent(sub.key, k -> ConcurrentHashMap.newKeySet()).add(sub);
+    }
+
+    private void unregister(Subscriber sub) {
+        sub.index.computeIfPresent(sub.key, (k, set) -> {
+            set.remove(sub);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private final class Subscriber {
+        final ConcurrentHashMap<Long, Set<Subscriber>> index;
+        final Long key;
+        final boolean completeOnTerminal;
+        final SseEmitter emitter = new SseEmitter(sseTimeout);
+        final BlockingQueue<TransactionStatusChangedEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+        volatile Thread worker;
+        volatile boolean closed;
+
+        Subscriber(ConcurrentHashMap<Long, Set<Subscriber>> index, Long key, boolean completeOnTerminal) {
+            this.index = index;
+            this.key = key;
+            this.completeOnTerminal = completeOnTerminal;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(ex -> close());
+        }
+
+        void start() {
+            worker = Thread.ofVirtual().name("sse-" + key).start(this::run);
+        }
+
+        void run() {
+            try {
+                while (!closed) {
+                    var event = queue.poll(heartbeatInterval, TimeUnit.MILLISECONDS);
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                        continue;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(event.transactionId() + ":" + event.status())
+                            .name("status")
+                            .data(event));
+                    if (completeOnTerminal && event.isTerminal()) {
+                        emitter.complete();
+                        return;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException ex) {
+                logger.debug("SSE subscriber for key {} disconnected: {}", key, ex.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        void complete() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // already completed
+            }
+            close();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unregister(this);
+            Thread w = worker;
+            if (w != null && w != Thread.currentThread()) {
+                w.interrupt();
+            }
+        }
+    }
+}
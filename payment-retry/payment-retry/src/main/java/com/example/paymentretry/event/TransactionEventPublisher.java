@@ -0,0 +1,37 @@
+package com.example.paymentretry.event;
+
+import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.model.TransactionStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single place status transitions are announced from. Listeners registered with
+ * {@code @TransactionalEventListener} see the event only once the change has committed.
+ */
+@Component
+public class TransactionEventPublisher {
+    @Autowired
+    private final ApplicationEventPublisher publisher;
+
+    public TransactionEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    public void statusChanged(Transaction tx, TransactionStatus previous) {
+        statusChanged(tx.getId(), tx.getUser() != null ? tx.getUser().getId() : null, tx.getGateway(),
+                previous, tx.getStatus());
+    }
+
+    public void statusChanged(Long transactionId, Long userId, String gateway,
+                              TransactionStatus previous, TransactionStatus status) {
+        if (previous == status) {
+            return;
+        }
+        publisher.publishEvent(new TransactionStatusChangedEvent(
+                transactionId, userId, gateway, previous, status, LocalDateTime.now()));
+    }
+}
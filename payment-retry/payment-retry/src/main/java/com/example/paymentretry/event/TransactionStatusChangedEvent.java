@@ -0,0 +1,26 @@
+package com.example.paymentretry.event;
+
+import com.example.paymentretry.model.TransactionStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published whenever a transaction changes status. {@code previousStatus} is null
+ * for newly created transactions.
+ */
+public record TransactionStatusChangedEvent(
+        Long transactionId,
+        Long userId,
+        String gateway,
+        TransactionStatus previousStatus,
+        TransactionStatus status,
+        LocalDateTime occurredAt
+) {
+    public boolean isTerminal() {
+        return isTerminal(status);
+    }
+
+    public static boolean isTerminal(TransactionStatus status) {
+        return status == TransactionStatus.SUCCESS || status == TransactionStatus.FAILED;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.paymentretry.exception;
 
 import com.example.paymentretry.payload.CustomApiResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -20,6 +21,31 @@ public class GlobalExceptionHandler {
                 .body(CustomApiResponse.error(HttpStatus.UNAUTHORIZED, ex.getMessage(), false));
     }
 
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<CustomApiResponse<String>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(CustomApiResponse.error(HttpStatus.CONFLICT, ex.getMessage(), false));
+    }
+
+    @ExceptionHandler(RedriveInProgressException.class)
+    public ResponseEntity<CustomApiResponse<String>> handleRedriveInProgress(RedriveInProgressException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(CustomApiResponse.error(HttpStatus.CONFLICT, ex.getMessage(), false));
+    }
+
+    // lost an optimistic version check or a status compare-and-set to a concurrent writer
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<CustomApiResponse<String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(CustomApiResponse.error(HttpStatus.CONFLICT, "Resource was modified concurrently, please retry", false));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<CustomApiResponse<String>> handleIllegalArgument(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(CustomApiResponse.error(HttpStatus.BAD_REQUEST, ex.getMessage(), false));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<CustomApiResponse<String>> handleGeneralException(Exception ex) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,7 @@
+package com.example.paymentretry.exception;
+
+public class RedriveInProgressException extends RuntimeException {
+    public RedriveInProgressException(String message) {
+        super(message);
+    }
+}
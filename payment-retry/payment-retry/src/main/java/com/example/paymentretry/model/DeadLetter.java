@@ -0,0 +1,122 @@
+package com.example.paymentretry.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A transaction that ended FAILED with its retry budget spent. Parked here (amount, gateway
+ * and last error copied from the transaction) so admins can filter and bulk re-drive them;
+ * the row is removed when the transaction is re-driven or turns out to be resolved.
+ */
+@Entity
+@Table(name = "dead_letters", indexes = {
+        @Index(name = "idx_dead_letters_code_parked", columnList = "error_code, dead_lettered_at"),
+        @Index(name = "idx_dead_letters_gateway_parked", columnList = "gateway, dead_lettered_at"),
+        @Index(name = "idx_dead_letters_parked_id", columnList = "dead_lettered_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_dead_letters_transaction", columnNames = {"transaction_id"})
+})
+public class DeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String gateway;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "error_code", nullable = false)
+    private String errorCode;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "dead_lettered_at", nullable = false)
+    private LocalDateTime deadLetteredAt;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getGateway() {
+        return gateway;
+    }
+
+    public void setGateway(String gateway) {
+        this.gateway = gateway;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getDeadLetteredAt() {
+        return deadLetteredAt;
+    }
+
+    public void setDeadLetteredAt(LocalDateTime deadLetteredAt) {
+        this.deadLetteredAt = deadLetteredAt;
+    }
+}
@@ -5,21 +5,27 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "error_logs")
+@Table(name = "error_logs", indexes = {
+        @Index(name = "idx_error_logs_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_error_logs_code_created_id", columnList = "error_code, created_at, id"),
+        @Index(name = "idx_error_logs_transaction_created", columnList = "transaction_id, created_at")
+})
 @Data
 @Builder
 public class ErrorLog {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "error_log_id")
+    @TableGenerator(name = "error_log_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "error_logs", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "transaction_id", nullable = false)
+    @JoinColumn(name = "transaction_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Transaction transaction;
 
     @Column(name = "error_code", nullable = false)
@@ -34,10 +40,18 @@ public class ErrorLog {
     @Column(name = "retry_attempt")
     private Integer retryAttempt;
 
-    @CreationTimestamp
-    @Column(updatable = false)
+    // month partition key, see MonthlyPartitions. Set when the error happens, not when the
+    // write-behind buffer flushes it; @CreationTimestamp would overwrite it at insert
+    @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @PrePersist
+    void defaultCreatedAt() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -8,10 +8,14 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 @Builder
 @Entity
-@Table(name = "payment_methods")
+@Table(name = "payment_methods", indexes = {
+        @Index(name = "idx_payment_methods_user_priority", columnList = "user_id, priority, id")
+})
 public class PaymentMethod {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "payment_method_id")
+    @TableGenerator(name = "payment_method_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "payment_methods", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
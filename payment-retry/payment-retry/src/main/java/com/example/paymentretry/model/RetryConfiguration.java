@@ -1,7 +1,6 @@
 package com.example.paymentretry.model;
 
 import jakarta.persistence.*;
-import lombok.Builder;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -9,16 +8,21 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "retry_configurations")
-@Builder
+@Table(name = "retry_configurations", indexes = {
+        @Index(name = "idx_retry_configurations_next_retry", columnList = "next_retry_time, current_attempts"),
+        @Index(name = "idx_retry_configurations_attempts", columnList = "current_attempts, transaction_id")
+})
 public class RetryConfiguration {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "retry_configuration_id")
+    @TableGenerator(name = "retry_configuration_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "retry_configurations", allocationSize = 50)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "transaction_id", nullable = false)
+    @JoinColumn(name = "transaction_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Transaction transaction;
 
     @Column(name = "max_retries", nullable = false)
@@ -44,6 +48,10 @@ public class RetryConfiguration {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // optimistic lock: concurrent load-modify-save writers fail instead of overwriting each other
+    @Version
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -117,6 +125,14 @@ public class RetryConfiguration {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // Constructors
     public RetryConfiguration() {}
 
@@ -0,0 +1,47 @@
+package com.example.paymentretry.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row per transaction with a retry waiting to run. Rows exist only while the retry is
+ * actionable, so the scheduler's scan is bounded by the backlog rather than by history;
+ * retry_configurations keeps the full record.
+ */
+@Entity
+@Table(name = "retry_due", indexes = {
+        @Index(name = "idx_retry_due_due_at", columnList = "due_at")
+})
+public class RetryDue {
+    @Id
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "due_at", nullable = false)
+    private LocalDateTime dueAt;
+
+    public RetryDue() {}
+
+    public RetryDue(Long transactionId, LocalDateTime dueAt) {
+        this.transactionId = transactionId;
+        this.dueAt = dueAt;
+    }
+
+    // Getters and Setters
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+
+    public void setDueAt(LocalDateTime dueAt) {
+        this.dueAt = dueAt;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.paymentretry.model;
 
 import jakarta.persistence.*;
-import lombok.Builder;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.math.BigDecimal;
@@ -9,15 +8,28 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "transactions")
-@Builder
+@Table(name = "transactions", indexes = {
+        // keyset pagination on (created_at, id), optionally narrowed by user or status
+        @Index(name = "idx_transactions_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_transactions_user_created_id", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_transactions_status_created_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_transactions_user_status_created_id", columnList = "user_id, status, created_at, id"),
+        // callback lookup by gateway reference
+        @Index(name = "idx_transactions_external_ref", columnList = "external_reference_id"),
+        // hours touched since the last analytics rollup run
+        @Index(name = "idx_transactions_updated_at", columnList = "updated_at")
+})
 public class Transaction {
+    // pooled-lo table generator: ids come in blocks of 50, so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id")
+    @TableGenerator(name = "transaction_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "transactions", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     @Column(nullable = false, precision = 10, scale = 2)
@@ -39,8 +51,9 @@ public class Transaction {
     @Column(name = "payment_method_id")
     private Long paymentMethodId;
 
+    // partitioning column: part of the primary key (id, created_at), so never null or changed
     @CreationTimestamp
-    @Column(updatable = false)
+    @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
@@ -49,6 +62,10 @@ public class Transaction {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    // optimistic lock: concurrent load-modify-save writers fail instead of overwriting each other
+    @Version
+    private Long version;
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -130,6 +147,14 @@ public class Transaction {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCompletedAt() {
         return completedAt;
     }
@@ -1,9 +1,31 @@
 package com.example.paymentretry.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum TransactionStatus {
     PENDING,
     SUCCESS,
     FAILED,
     RETRY_SCHEDULED,
-    RETRY_IN_PROGRESS
+    RETRY_IN_PROGRESS;
+
+    /**
+     * Allowed moves of the status state machine. SUCCESS is final. FAILED can still be
+     * retried, and a gateway success that arrives late (after a timeout marked the
+     * transaction FAILED or scheduled a retry) is always accepted.
+     */
+    public Set<TransactionStatus> successors() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(SUCCESS, FAILED, RETRY_SCHEDULED);
+            case RETRY_SCHEDULED -> EnumSet.of(RETRY_IN_PROGRESS, SUCCESS, FAILED);
+            case RETRY_IN_PROGRESS -> EnumSet.of(SUCCESS, FAILED, RETRY_SCHEDULED);
+            case FAILED -> EnumSet.of(RETRY_SCHEDULED, RETRY_IN_PROGRESS, SUCCESS);
+            case SUCCESS -> EnumSet.noneOf(TransactionStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(TransactionStatus next) {
+        return successors().contains(next);
+    }
 }
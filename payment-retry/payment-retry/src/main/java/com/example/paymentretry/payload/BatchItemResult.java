@@ -0,0 +1,68 @@
+package com.example.paymentretry.payload;
+
+/**
+ * Per-item outcome of a batch request. {@code index} is the position of the item in the request.
+ */
+public class BatchItemResult<T> {
+    private int index;
+    private boolean success;
+    private String outcome;
+    private String message;
+    private T data;
+
+    public BatchItemResult(int index, boolean success, String outcome, String message, T data) {
+        this.index = index;
+        this.success = success;
+        this.outcome = outcome;
+        this.message = message;
+        this.data = data;
+    }
+
+    public static <T> BatchItemResult<T> ok(int index, String outcome, T data) {
+        return new BatchItemResult<>(index, true, outcome, null, data);
+    }
+
+    public static <T> BatchItemResult<T> failed(int index, String outcome, String message) {
+        return new BatchItemResult<>(index, false, outcome, message, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.paymentretry.payload;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset counterpart of {@link PagedResponse}: instead of page numbers it hands
+ * back an opaque cursor for the next page. The total is only filled in when
+ * the caller asks for it, since counting is what makes deep listings slow.
+ */
+public class CursorPagedResponse<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean last;
+    private Long totalElements;
+
+    public CursorPagedResponse(List<T> content, int size, String nextCursor, boolean last, Long totalElements) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.last = last;
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * Builds a page from a query that fetched {@code size + 1} rows; the extra
+     * row only signals that another page exists and is dropped.
+     */
+    public static <T> CursorPagedResponse<T> of(List<T> rows, int size,
+                                                Function<T, PageCursor> cursorOf, Long totalElements) {
+        boolean last = rows.size() <= size;
+        List<T> content = last ? rows : rows.subList(0, size);
+        String next = last || content.isEmpty() ? null : cursorOf.apply(content.get(content.size() - 1)).encode();
+        return new CursorPagedResponse<>(content, size, next, last, totalElements);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    public void setLast(boolean last) {
+        this.last = last;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(Long totalElements) {
+        this.totalElements = totalElements;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.paymentretry.payload;
+
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Selects dead letters for a bulk re-drive. Every criterion is optional; {@code to} is
+ * exclusive. {@code ratePerSecond} caps gateway calls for the job and defaults to
+ * payment.redrive.rate-per-second.
+ */
+public class DeadLetterFilter {
+    private String errorCode;
+    private String gateway;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    @Positive
+    private Integer ratePerSecond;
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public String getGateway() {
+        return gateway;
+    }
+
+    public void setGateway(String gateway) {
+        this.gateway = gateway;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public void setMinAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public Integer getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(Integer ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+}
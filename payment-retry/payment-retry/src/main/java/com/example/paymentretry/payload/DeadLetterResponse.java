@@ -0,0 +1,40 @@
+package com.example.paymentretry.payload;
+
+import com.example.paymentretry.model.DeadLetter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class DeadLetterResponse {
+    private final Long id;
+    private final Long transactionId;
+    private final Long userId;
+    private final String gateway;
+    private final BigDecimal amount;
+    private final String currency;
+    private final String errorCode;
+    private final Integer attempts;
+    private final LocalDateTime deadLetteredAt;
+
+    public DeadLetterResponse(DeadLetter d) {
+        this.id = d.getId();
+        this.transactionId = d.getTransactionId();
+        this.userId = d.getUserId();
+        this.gateway = d.getGateway();
+        this.amount = d.getAmount();
+        this.currency = d.getCurrency();
+        this.errorCode = d.getErrorCode();
+        this.attempts = d.getAttempts();
+        this.deadLetteredAt = d.getDeadLetteredAt();
+    }
+
+    public Long getId() { return id; }
+    public Long getTransactionId() { return transactionId; }
+    public Long getUserId() { return userId; }
+    public String getGateway() { return gateway; }
+    public BigDecimal getAmount() { return amount; }
+    public String getCurrency() { return currency; }
+    public String getErrorCode() { return errorCode; }
+    public Integer getAttempts() { return attempts; }
+    public LocalDateTime getDeadLetteredAt() { return deadLetteredAt; }
+}
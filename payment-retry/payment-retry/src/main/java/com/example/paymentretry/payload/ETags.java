@@ -0,0 +1,42 @@
+package com.example.paymentretry.payload;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Strong entity tags computed from version columns (ids and updatedAt timestamps) only,
+ * so a conditional GET can be answered without loading or serializing the response.
+ */
+public final class ETags {
+    private ETags() {
+    }
+
+    public static String of(String prefix, Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (Object p : parts) {
+            sb.append(p).append('|');
+        }
+        return quote(prefix, sb);
+    }
+
+    public static String ofRows(String prefix, List<Object[]> rows, Object... extra) {
+        StringBuilder sb = new StringBuilder();
+        for (Object[] row : rows) {
+            for (Object p : row) {
+                sb.append(p).append('|');
+            }
+            sb.append(';');
+        }
+        for (Object p : extra) {
+            sb.append(p).append('|');
+        }
+        return quote(prefix, sb);
+    }
+
+    private static String quote(String prefix, CharSequence versions) {
+        return "\"" + prefix + "-" + DigestUtils.md5DigestAsHex(
+                versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.paymentretry.payload;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress snapshot of a bulk re-drive. {@code matched} is counted when the job starts;
+ * {@code skipped} covers dead letters whose transaction had already moved on.
+ */
+public class RedriveJobStatus {
+    public enum State { RUNNING, COMPLETED, CANCELLED, FAILED }
+
+    private final String jobId;
+    private final State state;
+    private final int ratePerSecond;
+    private final long matched;
+    private final long processed;
+    private final long redriven;
+    private final long skipped;
+    private final long failed;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime finishedAt;
+
+    public RedriveJobStatus(String jobId, State state, int ratePerSecond, long matched, long processed,
+                            long redriven, long skipped, long failed,
+                            LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.jobId = jobId;
+        this.state = state;
+        this.ratePerSecond = ratePerSecond;
+        this.matched = matched;
+        this.processed = processed;
+        this.redriven = redriven;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    public String getJobId() { return jobId; }
+    public State getState() { return state; }
+    public int getRatePerSecond() { return ratePerSecond; }
+    public long getMatched() { return matched; }
+    public long getProcessed() { return processed; }
+    public long getRedriven() { return redriven; }
+    public long getSkipped() { return skipped; }
+    public long getFailed() { return failed; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+}
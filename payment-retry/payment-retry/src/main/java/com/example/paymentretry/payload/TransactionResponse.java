@@ -1,5 +1,6 @@
 package com.example.paymentretry.payload;
 
+import com.example.paymentretry.model.RetryStrategy;
 import com.example.paymentretry.model.TransactionStatus;
 import lombok.Builder;
 import lombok.Data;
@@ -37,6 +38,41 @@ public class TransactionResponse {
         this.retryConfig = b.retryConfig;
     }
 
+    /**
+     * Flat row constructor for JPQL constructor expressions. The payment
+     * method and retry configuration come from outer joins, so either may be
+     * all-null and is then left out.
+     */
+    public TransactionResponse(Long id, BigDecimal amount, String currency, TransactionStatus status,
+                               String gateway, String externalReferenceId, LocalDateTime createdAt,
+                               LocalDateTime updatedAt, LocalDateTime completedAt,
+                               Long pmId, String pmMethodName, String pmDetails, Integer pmPriority,
+                               Boolean pmIsDefault,
+                               Long rcId, Integer rcMaxRetries, Long rcRetryInterval,
+                               RetryStrategy rcStrategy, Integer rcCurrentAttempts,
+                               LocalDateTime rcNextRetryTime) {
+        this.id = id;
+        this.amount = amount;
+        this.currency = currency;
+        this.status = status;
+        this.gateway = gateway;
+        this.externalReferenceId = externalReferenceId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.completedAt = completedAt;
+        this.paymentMethod = pmId == null ? null
+                : new PaymentMethodResponse(pmId, pmMethodName, pmDetails, pmPriority, pmIsDefault);
+        this.retryConfig = rcId == null ? null
+                : RetryConfigResponse.builder()
+                        .id(rcId)
+                        .maxRetries(rcMaxRetries)
+                        .retryInterval(rcRetryInterval)
+                        .strategy(rcStrategy)
+                        .currentAttempts(rcCurrentAttempts)
+                        .nextRetryTime(rcNextRetryTime)
+                        .build();
+    }
+
     public static Builder builder() { return new Builder(); }
 
     public static class Builder {
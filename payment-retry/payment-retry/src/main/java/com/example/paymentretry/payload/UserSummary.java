@@ -0,0 +1,41 @@
+package com.example.paymentretry.payload;
+
+import com.example.paymentretry.model.Role;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by the admin user list. Projected straight from the users
+ * table so the list never loads managed User entities (or their password hash).
+ */
+public class UserSummary {
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String phone;
+    private final Role role;
+    private final boolean enabled;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public UserSummary(Long id, String name, String email, String phone, Role role,
+                       boolean enabled, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.role = role;
+        this.enabled = enabled;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+    public Role getRole() { return role; }
+    public boolean isEnabled() { return enabled; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
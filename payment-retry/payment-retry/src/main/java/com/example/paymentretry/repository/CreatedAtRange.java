@@ -0,0 +1,34 @@
+package com.example.paymentretry.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Half-open {@code [from, to)} window on created_at, handed to repository queries as two
+ * plain bounds. transactions and error_logs are RANGE-partitioned by month of created_at,
+ * and MySQL only prunes partitions for direct comparisons on the column:
+ * {@code (:x IS NULL OR created_at >= :x)} filters and end-of-day values such as
+ * 23:59:59.999999999 (which DATETIME(6) rounds up into the next day) defeat it. A missing
+ * filter is therefore the widest window rather than a null.
+ */
+public record CreatedAtRange(LocalDateTime from, LocalDateTime to) {
+    public static final LocalDateTime MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    public static final LocalDateTime MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public static CreatedAtRange all() {
+        return new CreatedAtRange(MIN, MAX);
+    }
+
+    /**
+     * Whole days from {@code startDate} through {@code endDate}; unbounded unless both are given.
+     */
+    public static CreatedAtRange ofDays(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            return all();
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate must be on or after startDate");
+        }
+        return new CreatedAtRange(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.paymentretry.repository;
+
+import com.example.paymentretry.model.DeadLetter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DeadLetterRepository extends JpaRepository<DeadLetter, Long> {
+    @Query(value = """
+        SELECT d FROM DeadLetter d
+         WHERE (:errorCode IS NULL OR d.errorCode = :errorCode)
+           AND (:gateway IS NULL OR d.gateway = :gateway)
+           AND (:from IS NULL OR d.deadLetteredAt >= :from)
+           AND (:to IS NULL OR d.deadLetteredAt < :to)
+           AND (:minAmount IS NULL OR d.amount >= :minAmount)
+           AND (:maxAmount IS NULL OR d.amount <= :maxAmount)
+         ORDER BY d.deadLetteredAt DESC, d.id DESC
+        """)
+    Page<DeadLetter> findFiltered(@Param("errorCode") String errorCode,
+                                  @Param("gateway") String gateway,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to,
+                                  @Param("minAmount") BigDecimal minAmount,
+                                  @Param("maxAmount") BigDecimal maxAmount,
+                                  Pageable pageable);
+
+    // re-drive walks the matches by id; re-driven rows are deleted, so the seek never revisits them
+    @Query("""
+        SELECT d FROM DeadLetter d
+         WHERE (:errorCode IS NULL OR d.errorCode = :errorCode)
+           AND (:gateway IS NULL OR d.gateway = :gateway)
+           AND (:from IS NULL OR d.deadLetteredAt >= :from)
+           AND (:to IS NULL OR d.deadLetteredAt < :to)
+           AND (:minAmount IS NULL OR d.amount >= :minAmount)
+           AND (:maxAmount IS NULL OR d.amount <= :maxAmount)
+           AND d.id > :afterId
+         ORDER BY d.id
+        """)
+    List<DeadLetter> findFilteredAfter(@Param("errorCode") String errorCode,
+                                       @Param("gateway") String gateway,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("minAmount") BigDecimal minAmount,
+                                       @Param("maxAmount") BigDecimal maxAmount,
+                                       @Param("afterId") Long afterId,
+                                       Pageable limit);
+
+    @Query("""
+        SELECT COUNT(d) FROM DeadLetter d
+         WHERE (:errorCode IS NULL OR d.errorCode = :errorCode)
+           AND (:gateway IS NULL OR d.gateway = :gateway)
+           AND (:from IS NULL OR d.deadLetteredAt >= :from)
+           AND (:to IS NULL OR d.deadLetteredAt < :to)
+           AND (:minAmount IS NULL OR d.amount >= :minAmount)
+           AND (:maxAmount IS NULL OR d.amount <= :maxAmount)
+        """)
+    long countFiltered(@Param("errorCode") String errorCode,
+                       @Param("gateway") String gateway,
+                       @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to,
+                       @Param("minAmount") BigDecimal minAmount,
+                       @Param("maxAmount") BigDecimal maxAmount);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DeadLetter d WHERE d.transactionId = :transactionId")
+    int deleteByTransactionId(@Param("transactionId") Long transactionId);
+}
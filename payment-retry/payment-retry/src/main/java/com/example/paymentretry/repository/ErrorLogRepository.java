@@ -2,10 +2,12 @@ package com.example.paymentretry.repository;
 
 import com.example.paymentretry.model.ErrorLog;
 import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.payload.ErrorLogResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -14,13 +16,60 @@ import java.util.List;
 @Repository
 public interface ErrorLogRepository extends JpaRepository<ErrorLog, Long> {
     List<ErrorLog> findByTransaction(Transaction transaction);
-    Page<ErrorLog> findByErrorCode(String errorCode, Pageable pageable);
+    // Read-only list projection; e.transaction.id resolves to the FK column without a join.
+    // Date filters are a CreatedAtRange, never null, so MySQL can prune month partitions.
+    @Query(value = """
+        SELECT new com.example.paymentretry.payload.ErrorLogResponse(
+               e.id, e.transaction.id, e.errorCode, e.errorMessage,
+               e.retryEligible, e.retryAttempt, e.createdAt)
+          FROM ErrorLog e
+         WHERE (:errorCode IS NULL OR e.errorCode = :errorCode)
+           AND e.createdAt >= :from
+           AND e.createdAt < :to
+         ORDER BY e.createdAt DESC
+        """,
+        countQuery = """
+        SELECT COUNT(e)
+          FROM ErrorLog e
+         WHERE (:errorCode IS NULL OR e.errorCode = :errorCode)
+           AND e.createdAt >= :from
+           AND e.createdAt < :to
+        """)
+    Page<ErrorLogResponse> findResponses(@Param("errorCode") String errorCode,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         Pageable pageable);
 
-    @Query("SELECT e FROM ErrorLog e WHERE e.createdAt >= :startDate AND e.createdAt <= :endDate")
-    Page<ErrorLog> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+    // Keyset variant: seeks past (createdAt, id) instead of skipping OFFSET rows
+    @Query("""
+        SELECT new com.example.paymentretry.payload.ErrorLogResponse(
+               e.id, e.transaction.id, e.errorCode, e.errorMessage,
+               e.retryEligible, e.retryAttempt, e.createdAt)
+          FROM ErrorLog e
+         WHERE (:errorCode IS NULL OR e.errorCode = :errorCode)
+           AND e.createdAt >= :from
+           AND e.createdAt < :to
+           AND e.createdAt <= :afterCreatedAt
+           AND (e.createdAt < :afterCreatedAt OR e.id < :afterId)
+         ORDER BY e.createdAt DESC, e.id DESC
+        """)
+    List<ErrorLogResponse> findResponsesAfter(@Param("errorCode") String errorCode,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to,
+                                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                              @Param("afterId") Long afterId,
+                                              Pageable limit);
 
-    @Query("SELECT e FROM ErrorLog e WHERE e.errorCode = :errorCode AND e.createdAt >= :startDate AND e.createdAt <= :endDate")
-    Page<ErrorLog> findByErrorCodeAndDateRange(String errorCode, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+    @Query("""
+        SELECT COUNT(e)
+          FROM ErrorLog e
+         WHERE (:errorCode IS NULL OR e.errorCode = :errorCode)
+           AND e.createdAt >= :from
+           AND e.createdAt < :to
+        """)
+    long countFiltered(@Param("errorCode") String errorCode,
+                       @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to);
 
     @Query("SELECT e.errorCode, COUNT(e) FROM ErrorLog e GROUP BY e.errorCode ORDER BY COUNT(e) DESC")
     List<Object[]> findMostCommonErrorCodes(Pageable pageable);
@@ -0,0 +1,46 @@
+package com.example.paymentretry.repository;
+
+import com.example.paymentretry.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Records the transaction created for a reservation; 0 if the reservation is gone, i.e.
+     * its lease ran out and another request reclaimed the key.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE IdempotencyRecord r
+           SET r.transactionId = :transactionId
+         WHERE r.id = :id
+           AND r.transactionId IS NULL
+        """)
+    int complete(@Param("id") Long id, @Param("transactionId") Long transactionId);
+
+    // frees a key whose request never completed and whose lease has run out; 0 if it completed or was reclaimed meanwhile
+    @Transactional
+    @Modifying
+    @Query("""
+        DELETE FROM IdempotencyRecord r
+         WHERE r.id = :id
+           AND r.transactionId IS NULL
+           AND r.createdAt < :leasedSince
+        """)
+    int deleteAbandoned(@Param("id") Long id, @Param("leasedSince") LocalDateTime leasedSince);
+}
@@ -0,0 +1,50 @@
+package com.example.paymentretry.repository;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Naming and DDL fragments for the monthly RANGE COLUMNS(created_at) partitions of
+ * transactions and error_logs. Month {@code M} lives in {@code pYYYYMM} (rows before the
+ * first day of {@code M + 1}); {@code p_future} catches anything past the last month and
+ * is kept empty by creating months ahead, so splitting it stays a metadata change.
+ */
+public final class MonthlyPartitions {
+    public static final List<String> TABLES = List.of("transactions", "error_logs");
+    public static final String FUTURE = "p_future";
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private MonthlyPartitions() {
+    }
+
+    public static String name(YearMonth month) {
+        return month.format(NAME);
+    }
+
+    /**
+     * The month a {@code pYYYYMM} partition holds, or null for {@code p_future} and names
+     * this class did not create.
+     */
+    public static YearMonth month(String partition) {
+        try {
+            return YearMonth.parse(partition, NAME);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Partition list for {@code from} through {@code to}, followed by {@code p_future}.
+     */
+    public static String definitions(YearMonth from, YearMonth to) {
+        var defs = new StringJoiner(", ");
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            defs.add("PARTITION " + name(m) + " VALUES LESS THAN ('" + m.plusMonths(1).atDay(1) + "')");
+        }
+        defs.add("PARTITION " + FUTURE + " VALUES LESS THAN (MAXVALUE)");
+        return defs.toString();
+    }
+}
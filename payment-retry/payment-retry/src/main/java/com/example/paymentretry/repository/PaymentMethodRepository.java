@@ -3,6 +3,8 @@ package com.example.paymentretry.repository;
 import com.example.paymentretry.model.PaymentMethod;
 import com.example.paymentretry.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,4 +22,11 @@ public interface PaymentMethodRepository extends JpaRepository<PaymentMethod, Lo
 
     // Find the default payment method for a user by userId
     Optional<PaymentMethod> findByUserIdAndIsDefaultTrue(Long userId);
+
+    // Version-only lookups for ETags
+    @Query("SELECT pm.user.id, pm.updatedAt FROM PaymentMethod pm WHERE pm.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT pm.id, pm.updatedAt FROM PaymentMethod pm WHERE pm.user.id = :userId ORDER BY pm.priority ASC, pm.id ASC")
+    List<Object[]> findVersionsByUserId(@Param("userId") Long userId);
 }
@@ -4,11 +4,14 @@ import com.example.paymentretry.model.RetryConfiguration;
 import com.example.paymentretry.model.Transaction;
 import com.example.paymentretry.model.TransactionStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,26 +19,44 @@ import java.util.Optional;
 public interface RetryConfigurationRepository extends JpaRepository<RetryConfiguration, Long> {
     Optional<RetryConfiguration> findByTransaction(Transaction transaction);
 
+    List<RetryConfiguration> findByTransactionIn(Collection<Transaction> transactions);
+
     @Query("SELECT rc FROM RetryConfiguration rc WHERE rc.nextRetryTime <= :now AND rc.currentAttempts < rc.maxRetries")
     List<RetryConfiguration> findPendingRetries(@Param("now") LocalDateTime now);
 
-    // Optimized query for pending retries with transaction status
-    @Query("""
-  SELECT rc
-    FROM RetryConfiguration rc
-    JOIN rc.transaction t
-   WHERE rc.nextRetryTime <= :now
-     AND rc.currentAttempts < rc.maxRetries
-     AND t.status IN :eligibleStatuses
-   ORDER BY rc.nextRetryTime
-""")
-    List<RetryConfiguration> findEligiblePendingRetries(
-            @Param("now") LocalDateTime now,
-            @Param("eligibleStatuses") List<com.example.paymentretry.model.TransactionStatus> eligibleStatuses
-    );
+    // hydrates the scheduler's retry_due batch; transaction is fetched because its status is read outside any session
+    @Query("SELECT rc FROM RetryConfiguration rc JOIN FETCH rc.transaction t WHERE t.id IN :txIds")
+    List<RetryConfiguration> findWithTransactionByTransactionIdIn(@Param("txIds") Collection<Long> txIds);
 
     Optional<RetryConfiguration> findByTransactionId(Long transactionId);
 
+    /**
+     * Spends one attempt atomically, only while attempts remain; returns 0 otherwise.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE RetryConfiguration rc
+           SET rc.currentAttempts = rc.currentAttempts + 1,
+               rc.updatedAt = :now,
+               rc.version = rc.version + 1
+         WHERE rc.id = :id
+           AND rc.currentAttempts < rc.maxRetries
+        """)
+    int incrementAttempts(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // fresh retry budget for a re-driven dead letter
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE RetryConfiguration rc
+           SET rc.currentAttempts = 0,
+               rc.updatedAt = :now,
+               rc.version = rc.version + 1
+         WHERE rc.transaction.id = :transactionId
+        """)
+    int resetAttempts(@Param("transactionId") Long transactionId, @Param("now") LocalDateTime now);
+
     // Statistics query
     @Query("SELECT AVG(rc.currentAttempts) " +
             "FROM RetryConfiguration rc " +
@@ -0,0 +1,18 @@
+package com.example.paymentretry.repository;
+
+import com.example.paymentretry.model.RetryDue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RetryDueRepository extends JpaRepository<RetryDue, Long> {
+    // range scan on idx_retry_due_due_at; the table only ever holds actionable retries
+    @Query("SELECT d FROM RetryDue d WHERE d.dueAt <= :now ORDER BY d.dueAt")
+    List<RetryDue> findDue(@Param("now") LocalDateTime now, Pageable limit);
+}
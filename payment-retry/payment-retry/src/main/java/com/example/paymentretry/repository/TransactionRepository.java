@@ -3,14 +3,18 @@ package com.example.paymentretry.repository;
 import com.example.paymentretry.model.Transaction;
 import com.example.paymentretry.model.TransactionStatus;
 import com.example.paymentretry.model.User;
+import com.example.paymentretry.payload.TransactionResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,26 +38,61 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
         """, nativeQuery = true)
     List<Transaction> findPendingRetriesNative(@Param("now") LocalDateTime now);
 
-    @Query("SELECT t FROM Transaction t WHERE t.status = :status AND t.createdAt >= :startDate AND t.createdAt <= :endDate")
-    List<Transaction> findByStatusAndDateRange(TransactionStatus status, LocalDateTime startDate, LocalDateTime endDate);
+    // half-open [from, to) on created_at so only the months in range are read
+    @Query("SELECT t FROM Transaction t WHERE t.status = :status AND t.createdAt >= :from AND t.createdAt < :to")
+    List<Transaction> findByStatusAndDateRange(@Param("status") TransactionStatus status,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
 
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.status = :status")
     Long countByStatus(TransactionStatus status);
 
     Optional<Transaction> findByExternalReferenceId(String externalReferenceId);
 
-    // New query for analytics
+    List<Transaction> findByExternalReferenceIdIn(Collection<String> externalReferenceIds);
+
+    /**
+     * Compare-and-set status change: applies only while the row still holds {@code from}.
+     * Returns 0 when another writer moved the transaction first. Clears the persistence
+     * context, so entities loaded earlier in the transaction must not be saved afterwards.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Transaction t
+           SET t.status = :to,
+               t.completedAt = COALESCE(:completedAt, t.completedAt),
+               t.updatedAt = :now,
+               t.version = t.version + 1
+         WHERE t.id = :id
+           AND t.status = :from
+        """)
+    int compareAndSetStatus(@Param("id") Long id,
+                            @Param("from") TransactionStatus from,
+                            @Param("to") TransactionStatus to,
+                            @Param("completedAt") LocalDateTime completedAt,
+                            @Param("now") LocalDateTime now);
+
+    @Query("SELECT t.id, t.status FROM Transaction t WHERE t.id IN :ids")
+    List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // New query for analytics. created_date is the generated DATE(created_at) column; grouping
+    // on it reads idx_transactions_created_date_status in order, while the created_at bounds
+    // keep partition pruning.
     @Query(value = """
-        SELECT DATE(t.created_at) as date, 
+        SELECT t.created_date as date,
                COUNT(CASE WHEN t.status = 'SUCCESS' THEN 1 END) as successful,
                COUNT(CASE WHEN t.status = 'FAILED' THEN 1 END) as failed,
                COUNT(*) as total
         FROM transactions t
-        WHERE t.created_at >= :startDate
-        GROUP BY DATE(t.created_at)
-        ORDER BY date DESC
+        WHERE t.created_date >= DATE(:from)
+          AND t.created_date < DATE(:to)
+          AND t.created_at >= :from
+          AND t.created_at < :to
+        GROUP BY t.created_date
+        ORDER BY t.created_date DESC
         """, nativeQuery = true)
-    List<Object[]> getTransactionTrend(@Param("startDate") LocalDateTime startDate);
+    List<Object[]> getTransactionTrend(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
     // Query for retry success rate
     @Query(value = """
@@ -66,4 +105,80 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     List<Transaction> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable p);
 
+    // Bodies for a list page as a read-only projection (no managed entities or proxies);
+    // the page itself is chosen by findVersions and its order is the caller's
+    @Query("""
+        SELECT new com.example.paymentretry.payload.TransactionResponse(
+               t.id, t.amount, t.currency, t.status, t.gateway, t.externalReferenceId,
+               t.createdAt, t.updatedAt, t.completedAt,
+               pm.id, pm.methodName, pm.details, pm.priority, pm.isDefault,
+               rc.id, rc.maxRetries, rc.retryInterval, rc.strategy, rc.currentAttempts, rc.nextRetryTime)
+          FROM Transaction t
+          LEFT JOIN PaymentMethod pm ON pm.id = t.paymentMethodId
+          LEFT JOIN RetryConfiguration rc ON rc.transaction = t
+         WHERE t.id IN :ids
+        """)
+    List<TransactionResponse> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Version-only lookups for ETags: owner plus every updatedAt the response is built from
+    @Query("""
+        SELECT t.user.id, t.updatedAt, pm.updatedAt, rc.updatedAt
+          FROM Transaction t
+          LEFT JOIN PaymentMethod pm ON pm.id = t.paymentMethodId
+          LEFT JOIN RetryConfiguration rc ON rc.transaction = t
+         WHERE t.id = :id
+        """)
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    @Query(value = """
+        SELECT t.id, t.updatedAt, pm.updatedAt, rc.updatedAt
+          FROM Transaction t
+          LEFT JOIN PaymentMethod pm ON pm.id = t.paymentMethodId
+          LEFT JOIN RetryConfiguration rc ON rc.transaction = t
+         WHERE (:userId IS NULL OR t.user.id = :userId)
+           AND (:status IS NULL OR t.status = :status)
+         ORDER BY t.createdAt DESC
+        """,
+        countQuery = """
+        SELECT COUNT(t)
+          FROM Transaction t
+         WHERE (:userId IS NULL OR t.user.id = :userId)
+           AND (:status IS NULL OR t.status = :status)
+        """)
+    Page<Object[]> findVersions(@Param("userId") Long userId,
+                                @Param("status") TransactionStatus status,
+                                Pageable pageable);
+
+    // Keyset variant: seeks past (createdAt, id) instead of skipping OFFSET rows. The first
+    // page passes CreatedAtRange.MAX and Long.MAX_VALUE, so the bound is always a plain
+    // created_at comparison and months newer than the cursor are pruned.
+    @Query("""
+        SELECT new com.example.paymentretry.payload.TransactionResponse(
+               t.id, t.amount, t.currency, t.status, t.gateway, t.externalReferenceId,
+               t.createdAt, t.updatedAt, t.completedAt,
+               pm.id, pm.methodName, pm.details, pm.priority, pm.isDefault,
+               rc.id, rc.maxRetries, rc.retryInterval, rc.strategy, rc.currentAttempts, rc.nextRetryTime)
+          FROM Transaction t
+          LEFT JOIN PaymentMethod pm ON pm.id = t.paymentMethodId
+          LEFT JOIN RetryConfiguration rc ON rc.transaction = t
+         WHERE (:userId IS NULL OR t.user.id = :userId)
+           AND (:status IS NULL OR t.status = :status)
+           AND t.createdAt <= :afterCreatedAt
+           AND (t.createdAt < :afterCreatedAt OR t.id < :afterId)
+         ORDER BY t.createdAt DESC, t.id DESC
+        """)
+    List<TransactionResponse> findResponsesAfter(@Param("userId") Long userId,
+                                                 @Param("status") TransactionStatus status,
+                                                 @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                                 @Param("afterId") Long afterId,
+                                                 Pageable limit);
+
+    @Query("""
+        SELECT COUNT(t)
+          FROM Transaction t
+         WHERE (:userId IS NULL OR t.user.id = :userId)
+           AND (:status IS NULL OR t.status = :status)
+        """)
+    long countFiltered(@Param("userId") Long userId, @Param("status") TransactionStatus status);
+
 }
@@ -1,7 +1,11 @@
 package com.example.paymentretry.repository;
 
 import com.example.paymentretry.model.User;
+import com.example.paymentretry.payload.UserSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    @Query(value = """
+        SELECT new com.example.paymentretry.payload.UserSummary(
+               u.id, u.name, u.email, u.phone, u.role, u.enabled, u.createdAt, u.updatedAt)
+          FROM User u
+         ORDER BY u.id
+        """,
+        countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserSummary> findSummaries(Pageable pageable);
 }
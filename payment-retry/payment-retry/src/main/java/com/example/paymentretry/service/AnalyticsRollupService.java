@@ -0,0 +1,271 @@
+package com.example.paymentretry.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Hourly rollups behind the analytics endpoints, so dashboards read a few hundred rows
+ * whatever the history size:
+ * <ul>
+ *   <li>rollup_transactions_hourly – transactions by creation hour, gateway and current status;</li>
+ *   <li>rollup_error_codes_hourly – error logs by hour and error code;</li>
+ *   <li>rollup_retry_outcomes_hourly – transactions with retry settings by creation hour,
+ *       attempts spent and current status.</li>
+ * </ul>
+ * All-time figures come from the *_total tables, kept as running sums of the hourly rows.
+ * <p>
+ * A micro-batch job recomputes only the hours that changed since its last run: hours of
+ * transactions whose updated_at moved (creation and every status change bump it) and hours
+ * with newly inserted error logs. Error logs are found by inserted_at, not created_at, since
+ * the write-behind buffer may insert them well after the error. Each hour is rebuilt from the source rows in its own transaction,
+ * under a lock on the watermark row, so concurrent nodes and retries of a failed run never
+ * double count. Figures trail the source by up to one interval.
+ * <p>
+ * Archival and partition expiry move source rows out, so before deleting they {@link #seal}
+ * everything older than their cutoff. Sealed hours are never rebuilt again: their rollup
+ * rows keep counting the rows that left, and a late change to a transaction in such an
+ * hour is not reflected.
+ */
+@Service
+public class AnalyticsRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsRollupService.class);
+    private static final String WATERMARK = "analytics";
+    private static final String SEALED = "sealed";
+    private static final String HOUR = "DATE_FORMAT(created_at, '%Y-%m-%d %H:00:00')";
+
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+    @Autowired
+    private final TransactionTemplate transactionTemplate;
+
+    // covers rows that commit a while after stamping updated_at / inserted_at
+    @Value("${payment.rollup.lag:300000}")
+    private long lagMillis;
+
+    public AnalyticsRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.rollup.interval:60000}",
+            initialDelayString = "${payment.rollup.initial-delay:30000}")
+    public void refresh() {
+        var runStart = LocalDateTime.now();
+        Timestamp processedUntil = jdbcTemplate.queryForObject(
+                "SELECT processed_until FROM rollup_watermarks WHERE name = ?", Timestamp.class, WATERMARK);
+        List<String> txHours;
+        List<String> errorHours;
+        if (processedUntil == null) {
+            // first run: backfill every hour there is
+            txHours = jdbcTemplate.queryForList("SELECT DISTINCT " + HOUR + " FROM transactions", String.class);
+            errorHours = jdbcTemplate.queryForList("SELECT DISTINCT " + HOUR + " FROM error_logs", String.class);
+        } else {
+            var since = Timestamp.valueOf(processedUntil.toLocalDateTime().minusNanos(lagMillis * 1_000_000L));
+            txHours = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT " + HOUR + " FROM transactions WHERE updated_at >= ?", String.class, since);
+            errorHours = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT " + HOUR + " FROM error_logs WHERE inserted_at >= ?", String.class, since);
+        }
+
+        var hours = new TreeSet<String>();
+        hours.addAll(txHours);
+        hours.addAll(errorHours);
+        for (String hour : hours) {
+            var from = Timestamp.valueOf(hour);
+            var to = Timestamp.valueOf(from.toLocalDateTime().plusHours(1));
+            boolean transactions = txHours.contains(hour);
+            boolean errors = errorHours.contains(hour);
+            transactionTemplate.executeWithoutResult(status -> {
+                lockWatermark();
+                if (isSealed(from)) {
+                    return;
+                }
+                if (transactions) {
+                    rebuildTransactions(from, to);
+                    rebuildRetryOutcomes(from, to);
+                }
+                if (errors) {
+                    rebuildErrorCodes(from, to);
+                }
+            });
+        }
+        jdbcTemplate.update("UPDATE rollup_watermarks SET processed_until = ? WHERE name = ?",
+                Timestamp.valueOf(runStart), WATERMARK);
+        if (!hours.isEmpty()) {
+            logger.info("Refreshed analytics rollups for {} hours in {} ms", hours.size(),
+                    Duration.between(runStart, LocalDateTime.now()).toMillis());
+        }
+    }
+
+    /**
+     * Freezes the rollups of every hour that starts before {@code before}. Called ahead of
+     * deleting source rows older than that, so no later rebuild recounts those hours from
+     * what is left. The seal only moves forward.
+     */
+    public void seal(LocalDateTime before) {
+        var at = Timestamp.valueOf(before);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockWatermark();
+            jdbcTemplate.update("""
+                    UPDATE rollup_watermarks
+                       SET processed_until = GREATEST(COALESCE(processed_until, ?), ?)
+                     WHERE name = ?
+                    """, at, at, SEALED);
+        });
+    }
+
+    private void lockWatermark() {
+        jdbcTemplate.queryForList("SELECT name FROM rollup_watermarks WHERE name = ? FOR UPDATE", WATERMARK);
+    }
+
+    // read under the watermark lock, so a concurrent seal() is either fully seen or not at all
+    private boolean isSealed(Timestamp hour) {
+        Timestamp sealedBefore = jdbcTemplate.queryForObject(
+                "SELECT processed_until FROM rollup_watermarks WHERE name = ?", Timestamp.class, SEALED);
+        return sealedBefore != null && hour.before(sealedBefore);
+    }
+
+    private void rebuildTransactions(Timestamp from, Timestamp to) {
+        jdbcTemplate.update("DELETE FROM rollup_transactions_hourly WHERE bucket_hour = ?", from);
+        jdbcTemplate.update("""
+                INSERT INTO rollup_transactions_hourly (bucket_hour, gateway, status, tx_count)
+                SELECT ?, gateway, status, COUNT(*)
+                  FROM transactions
+                 WHERE created_at >= ? AND created_at < ?
+                 GROUP BY gateway, status
+                """, from, from, to);
+    }
+
+    private void rebuildRetryOutcomes(Timestamp from, Timestamp to) {
+        Map<List<Object>, Long> delta = new HashMap<>();
+        jdbcTemplate.query("SELECT attempt, status, tx_count FROM rollup_retry_outcomes_hourly WHERE bucket_hour = ?",
+                rs -> {
+                    delta.merge(List.of(rs.getInt(1), rs.getString(2)), -rs.getLong(3), Long::sum);
+                }, from);
+        jdbcTemplate.update("DELETE FROM rollup_retry_outcomes_hourly WHERE bucket_hour = ?", from);
+        jdbcTemplate.update("""
+                INSERT INTO rollup_retry_outcomes_hourly (bucket_hour, attempt, status, tx_count)
+                SELECT ?, rc.current_attempts, t.status, COUNT(*)
+                  FROM transactions t
+                  JOIN retry_configurations rc ON rc.transaction_id = t.id
+                 WHERE t.created_at >= ? AND t.created_at < ?
+                 GROUP BY rc.current_attempts, t.status
+                """, from, from, to);
+        jdbcTemplate.query("SELECT attempt, status, tx_count FROM rollup_retry_outcomes_hourly WHERE bucket_hour = ?",
+                rs -> {
+                    delta.merge(List.of(rs.getInt(1), rs.getString(2)), rs.getLong(3), Long::sum);
+                }, from);
+        applyDelta("""
+                INSERT INTO rollup_retry_outcomes_total (attempt, status, tx_count) VALUES (?, ?, ?)
+                ON DUPLICATE KEY UPDATE tx_count = tx_count + VALUES(tx_count)
+                """, delta);
+    }
+
+    private void rebuildErrorCodes(Timestamp from, Timestamp to) {
+        Map<List<Object>, Long> delta = new HashMap<>();
+        jdbcTemplate.query("SELECT error_code, error_count FROM rollup_error_codes_hourly WHERE bucket_hour = ?",
+                rs -> {
+                    delta.merge(List.of(rs.getString(1)), -rs.getLong(2), Long::sum);
+                }, from);
+        jdbcTemplate.update("DELETE FROM rollup_error_codes_hourly WHERE bucket_hour = ?", from);
+        jdbcTemplate.update("""
+                INSERT INTO rollup_error_codes_hourly (bucket_hour, error_code, error_count)
+                SELECT ?, error_code, COUNT(*)
+                  FROM error_logs
+                 WHERE created_at >= ? AND created_at < ?
+                 GROUP BY error_code
+                """, from, from, to);
+        jdbcTemplate.query("SELECT error_code, error_count FROM rollup_error_codes_hourly WHERE bucket_hour = ?",
+                rs -> {
+                    delta.merge(List.of(rs.getString(1)), rs.getLong(2), Long::sum);
+                }, from);
+        applyDelta("""
+                INSERT INTO rollup_error_codes_total (error_code, error_count) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE error_count = error_count + VALUES(error_count)
+                """, delta);
+    }
+
+    private void applyDelta(String upsert, Map<List<Object>, Long> delta) {
+        var rows = new ArrayList<Object[]>();
+        delta.forEach((key, d) -> {
+            if (d != 0) {
+                var args = new ArrayList<>(key);
+                args.add(d);
+                rows.add(args.toArray());
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(upsert, rows);
+        }
+    }
+
+    /**
+     * [date, successful, failed, total] per day of {@code [from, to)}, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> trend(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query("""
+                SELECT DATE(bucket_hour) AS day,
+                       SUM(CASE WHEN status = 'SUCCESS' THEN tx_count ELSE 0 END),
+                       SUM(CASE WHEN status = 'FAILED' THEN tx_count ELSE 0 END),
+                       SUM(tx_count)
+                  FROM rollup_transactions_hourly
+                 WHERE bucket_hour >= ? AND bucket_hour < ?
+                 GROUP BY DATE(bucket_hour)
+                 ORDER BY day DESC
+                """, (rs, n) -> new Object[]{rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getLong(3), rs.getLong(4)},
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Share of retried transactions (at least one attempt spent) that succeeded, in percent;
+     * null before anything was retried.
+     */
+    @Transactional(readOnly = true)
+    public Double retrySuccessRate() {
+        return jdbcTemplate.queryForObject("""
+                SELECT SUM(CASE WHEN status = 'SUCCESS' THEN tx_count ELSE 0 END) * 100.0 / NULLIF(SUM(tx_count), 0)
+                  FROM rollup_retry_outcomes_total
+                 WHERE attempt > 0
+                """, Double.class);
+    }
+
+    @Transactional(readOnly = true)
+    public Double averageAttemptsForSuccess() {
+        return jdbcTemplate.queryForObject("""
+                SELECT SUM(attempt * tx_count) / NULLIF(SUM(tx_count), 0)
+                  FROM rollup_retry_outcomes_total
+                 WHERE status = 'SUCCESS'
+                """, Double.class);
+    }
+
+    /**
+     * [errorCode, count] for the {@code limit} most frequent error codes of all time.
+     */
+    @Transactional(readOnly = true)
+    public List<Object[]> mostCommonErrorCodes(int limit) {
+        return jdbcTemplate.query("""
+                SELECT error_code, error_count
+                  FROM rollup_error_codes_total
+                 WHERE error_count > 0
+                 ORDER BY error_count DESC
+                 LIMIT ?
+                """, (rs, n) -> new Object[]{rs.getString(1), rs.getLong(2)}, limit);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.archive.SegmentStore;
+import com.example.paymentretry.exception.ResourceNotFoundException;
+import com.example.paymentretry.payload.CursorPagedResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves old, settled transactions (with their retry settings and error logs) out of MySQL
+ * into local {@link SegmentStore}s and serves them back read-only. A transaction is
+ * archived once it is SUCCESS or FAILED, untouched for {@code payment.archive.min-age-days},
+ * and neither dead-lettered nor queued for retry. Each pass writes and seals a segment
+ * before deleting its rows, so a crash in between leaves a duplicate, never a gap.
+ * <p>
+ * The files live on the node that ran the archiver; run it on one node and send archive
+ * reads there.
+ */
+@Service
+public class ArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveService.class);
+
+    private static final String ARCHIVABLE = """
+            t.status IN ('SUCCESS', 'FAILED')
+               AND t.created_at < :cutoff
+               AND COALESCE(t.updated_at, t.created_at) < :cutoff
+               AND NOT EXISTS (SELECT 1 FROM dead_letters d WHERE d.transaction_id = t.id)
+               AND NOT EXISTS (SELECT 1 FROM retry_due q WHERE q.transaction_id = t.id)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final AnalyticsRollupService rollups;
+    private final SegmentStore transactions;
+    private final SegmentStore errorLogs;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${payment.archive.enabled:false}")
+    private boolean enabled;
+    @Value("${payment.archive.min-age-days:180}")
+    private int minAgeDays;
+    @Value("${payment.archive.segment-rows:20000}")
+    private int segmentRows;
+    @Value("${payment.archive.delete-batch-size:500}")
+    private int deleteBatchSize;
+    @Value("${payment.archive.max-page-size:1000}")
+    private int maxPageSize;
+
+    public ArchiveService(NamedParameterJdbcTemplate jdbc,
+                          TransactionTemplate transactionTemplate,
+                          AnalyticsRollupService rollups,
+                          @Value("${payment.archive.dir:./archive}") String dir,
+                          @Value("${payment.archive.block-records:256}") int blockRecords) throws IOException {
+        this.jdbc = jdbc;
+        this.transactionTemplate = transactionTemplate;
+        this.rollups = rollups;
+        this.transactions = new SegmentStore("transactions", Path.of(dir, "transactions"), blockRecords);
+        this.errorLogs = new SegmentStore("error_logs", Path.of(dir, "error_logs"), blockRecords);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.archive.interval:3600000}",
+            initialDelayString = "${payment.archive.interval:3600000}")
+    public void archive() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        var cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        long started = System.currentTimeMillis();
+        long afterId = 0;
+        int archived = 0;
+        try {
+            // the hourly rollups keep counting what is about to leave the live tables
+            rollups.seal(cutoff);
+            while (true) {
+                List<Map<String, Object>> txRows = jdbc.queryForList("""
+                        SELECT t.id, t.user_id, t.amount, t.currency, t.status, t.gateway,
+                               t.external_reference_id, t.payment_method_id,
+                               t.created_at, t.updated_at, t.completed_at,
+                               rc.max_retries, rc.retry_interval, rc.strategy, rc.current_attempts
+                          FROM transactions t
+                          LEFT JOIN retry_configurations rc ON rc.transaction_id = t.id
+                         WHERE t.id > :afterId AND
+                        """ + ARCHIVABLE + """
+                         ORDER BY t.id
+                         LIMIT :limit
+                        """, new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("cutoff", cutoff)
+                        .addValue("limit", segmentRows));
+                if (txRows.isEmpty()) {
+                    break;
+                }
+                List<Long> ids = txRows.stream().map(r -> ((Number) r.get("id")).longValue()).toList();
+                List<Map<String, Object>> logRows = errorLogsOf(ids);
+
+                errorLogs.append(logRows);
+                transactions.append(txRows);
+                archived += delete(ids, logRows, cutoff);
+
+                afterId = ids.get(ids.size() - 1);
+                if (txRows.size() < segmentRows) {
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            logger.error("Archiving stopped after {} transactions", archived, ex);
+        } finally {
+            running.set(false);
+        }
+        if (archived > 0) {
+            logger.info("Archived {} transactions older than {} in {} ms",
+                    archived, cutoff, System.currentTimeMillis() - started);
+        }
+    }
+
+    private List<Map<String, Object>> errorLogsOf(List<Long> txIds) {
+        var rows = new ArrayList<Map<String, Object>>();
+        for (int from = 0; from < txIds.size(); from += deleteBatchSize) {
+            rows.addAll(jdbc.queryForList("""
+                    SELECT id, transaction_id, error_code, error_message, retry_eligible, retry_attempt, created_at
+                      FROM error_logs
+                     WHERE transaction_id IN (:ids)
+                    """, Map.of("ids", txIds.subList(from, Math.min(from + deleteBatchSize, txIds.size())))));
+        }
+        rows.sort((a, b) -> Long.compare(((Number) a.get("id")).longValue(), ((Number) b.get("id")).longValue()));
+        return rows;
+    }
+
+    /**
+     * Deletes archived rows in short transactions of delete-batch-size transactions each.
+     * Rows are re-checked under lock first; a transaction that changed since it was read,
+     * or gained an error log that is not in the archive, stays in MySQL.
+     */
+    private int delete(List<Long> txIds, List<Map<String, Object>> logRows, LocalDateTime cutoff) {
+        Map<Long, List<Long>> logIdsByTx = new HashMap<>();
+        for (var row : logRows) {
+            logIdsByTx.computeIfAbsent(((Number) row.get("transaction_id")).longValue(), k -> new ArrayList<>())
+                    .add(((Number) row.get("id")).longValue());
+        }
+        int deleted = 0;
+        for (int from = 0; from < txIds.size(); from += deleteBatchSize) {
+            List<Long> chunk = txIds.subList(from, Math.min(from + deleteBatchSize, txIds.size()));
+            Integer n = transactionTemplate.execute(status -> {
+                List<Long> still = jdbc.queryForList(
+                        "SELECT t.id FROM transactions t WHERE t.id IN (:ids) AND " + ARCHIVABLE + " FOR UPDATE",
+                        new MapSqlParameterSource("ids", chunk).addValue("cutoff", cutoff), Long.class);
+                if (still.isEmpty()) {
+                    return 0;
+                }
+                List<Long> logIds = still.stream()
+                        .flatMap(id -> logIdsByTx.getOrDefault(id, List.of()).stream())
+                        .toList();
+                int unarchivedLogs = jdbc.queryForObject("""
+                        SELECT COUNT(*) FROM error_logs
+                         WHERE transaction_id IN (:ids)
+                        """, Map.of("ids", still), Integer.class) - logIds.size();
+                if (unarchivedLogs > 0) {
+                    logger.warn("Keeping {} archived transactions in MySQL: {} error logs arrived after archiving",
+                            still.size(), unarchivedLogs);
+                    return 0;
+                }
+                if (!logIds.isEmpty()) {
+                    jdbc.update("DELETE FROM error_logs WHERE id IN (:ids)", Map.of("ids", logIds));
+                }
+                jdbc.update("DELETE FROM retry_configurations WHERE transaction_id IN (:ids)", Map.of("ids", still));
+                return jdbc.update("DELETE FROM transactions WHERE id IN (:ids)", Map.of("ids", still));
+            });
+            deleted += n != null ? n : 0;
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getTransaction(Long id) {
+        return find(transactions, id).orElseThrow(
+                () -> new ResourceNotFoundException("ArchivedTransaction", "id", id));
+    }
+
+    public CursorPagedResponse<Map<String, Object>> getTransactions(LocalDateTime from, LocalDateTime to,
+                                                                    String cursor, int size) {
+        return range(transactions, from, to, cursor, size);
+    }
+
+    public Map<String, Object> getErrorLog(Long id) {
+        return find(errorLogs, id).orElseThrow(
+                () -> new ResourceNotFoundException("ArchivedErrorLog", "id", id));
+    }
+
+    public CursorPagedResponse<Map<String, Object>> getErrorLogs(LocalDateTime from, LocalDateTime to,
+                                                                 String cursor, int size) {
+        return range(errorLogs, from, to, cursor, size);
+    }
+
+    private static Optional<Map<String, Object>> find(SegmentStore store, Long id) {
+        try {
+            return store.findById(id);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Keyset page over an archived created_at range, in id order; the cursor is the last id
+     * of the previous page.
+     */
+    private CursorPagedResponse<Map<String, Object>> range(SegmentStore store, LocalDateTime from, LocalDateTime to,
+                                                           String cursor, int size) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        long afterId;
+        try {
+            afterId = cursor == null || cursor.isBlank() ? 0 : Long.parseLong(cursor);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        List<Map<String, Object>> rows;
+        try {
+            rows = store.findByCreatedAt(from, to, afterId, limit + 1);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        boolean last = rows.size() <= limit;
+        List<Map<String, Object>> content = last ? rows : rows.subList(0, limit);
+        String next = last ? null : String.valueOf(content.get(content.size() - 1).get("id"));
+        return new CursorPagedResponse<>(content, limit, next, last, null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.concurrent.RingBuffer;
+import com.example.paymentretry.payload.PaymentCallbackRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous callback ingestion: the controller appends validated callbacks to a bounded
+ * ring buffer and a single consumer applies them in micro-batches, one DB transaction per batch.
+ * The consumer parks while the buffer is empty and producers wake it.
+ * <p>
+ * A callback accepted while the service stops is never lost: whichever of {@link #stop} and
+ * {@link #enqueue} comes second applies what the consumer left behind on its own thread.
+ */
+@Service
+public class CallbackIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(CallbackIngestionService.class);
+    @Autowired
+    private final PaymentService paymentService;
+
+    private final boolean asyncEnabled;
+    private final int batchSize;
+    private final RingBuffer<PaymentCallbackRequest> buffer;
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public CallbackIngestionService(
+            PaymentService paymentService,
+            @Value("${payment.callback.async.enabled:false}") boolean asyncEnabled,
+            @Value("${payment.callback.async.capacity:8192}") int capacity,
+            @Value("${payment.callback.async.batch-size:100}") int batchSize
+    ) {
+        this.paymentService = paymentService;
+        this.asyncEnabled = asyncEnabled;
+        this.batchSize = batchSize;
+        this.buffer = new RingBuffer<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!asyncEnabled) {
+            return;
+        }
+        running = true;
+        consumer = Thread.ofVirtual().name("callback-applier").start(this::consume);
+        logger.info("Async callback ingestion started (capacity {}, batch size {})",
+                buffer.capacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (consumer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(30));
+        if (!consumer.isAlive()) {
+            applyLeftovers();
+        }
+        logger.info("Async callback ingestion stopped, {} callbacks left unapplied", buffer.size());
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncEnabled;
+    }
+
+    /**
+     * Appends a callback for asynchronous apply. Returns false when the buffer is full,
+     * in which case the caller should process the callback synchronously.
+     */
+    public boolean enqueue(PaymentCallbackRequest cb) {
+        if (!running) {
+            return false;
+        }
+        boolean accepted = buffer.offer(cb);
+        if (accepted) {
+            LockSupport.unpark(consumer);
+            if (!running) {
+                // stop() may have seen the buffer empty before this landed
+                applyLeftovers();
+            }
+        } else {
+            logger.warn("Callback buffer full ({}), falling back to synchronous apply for {}",
+                    buffer.capacity(), cb.getExternalReferenceId());
+        }
+        return accepted;
+    }
+
+    public int backlog() {
+        return buffer.size();
+    }
+
+    // keeps draining after stop() until the buffer is empty
+    private void consume() {
+        List<PaymentCallbackRequest> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            batch.clear();
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                if (running) {
+                    // an enqueue racing this check leaves its unpark permit, so the park returns
+                    LockSupport.park(this);
+                }
+                continue;
+            }
+            applyBatch(batch);
+        }
+    }
+
+    private void applyLeftovers() {
+        List<PaymentCallbackRequest> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            applyBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void applyBatch(List<PaymentCallbackRequest> batch) {
+        try {
+            paymentService.processPaymentCallbacks(batch);
+        } catch (Exception ex) {
+            // the whole batch rolled back; apply one by one so a single bad callback
+            // does not take the rest of the batch with it
+            logger.error("Callback batch of {} failed, retrying individually: {}", batch.size(), ex.getMessage(), ex);
+            for (var cb : batch) {
+                try {
+                    paymentService.processPaymentCallback(cb);
+                } catch (Exception itemEx) {
+                    logger.error("Dropping callback for {}: {}", cb.getExternalReferenceId(), itemEx.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.model.DeadLetter;
+import com.example.paymentretry.payload.DeadLetterFilter;
+import com.example.paymentretry.payload.DeadLetterResponse;
+import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.repository.DeadLetterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Parking lot for transactions that failed with their retry budget spent. Bulk re-drive
+ * is {@link RedriveJobService}; the per-transaction step is
+ * {@link TransactionService#redriveDeadLetter(Long)}.
+ */
+@Service
+public class DeadLetterService {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterService.class);
+    @Autowired
+    private final DeadLetterRepository deadLetterRepository;
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeadLetterService(DeadLetterRepository deadLetterRepository, JdbcTemplate jdbcTemplate) {
+        this.deadLetterRepository = deadLetterRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record Park(Long transactionId, String errorCode, int attempts) {}
+
+    public void park(Long transactionId, String errorCode, int attempts) {
+        parkAll(List.of(new Park(transactionId, errorCode, attempts)));
+    }
+
+    /**
+     * Parks exhausted transactions, copying the filterable columns from the transaction row.
+     * Already-parked transactions are left as they are.
+     */
+    public void parkAll(List<Park> parks) {
+        if (parks.isEmpty()) {
+            return;
+        }
+        var now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("""
+                INSERT IGNORE INTO dead_letters
+                       (transaction_id, user_id, gateway, amount, currency, error_code, attempts, dead_lettered_at)
+                SELECT t.id, t.user_id, t.gateway, t.amount, t.currency, ?, ?, ?
+                  FROM transactions t
+                 WHERE t.id = ?
+                """, parks, parks.size(), (ps, p) -> {
+            ps.setString(1, p.errorCode() != null ? p.errorCode() : "UNKNOWN_ERROR");
+            ps.setInt(2, p.attempts());
+            ps.setTimestamp(3, now);
+            ps.setLong(4, p.transactionId());
+        });
+        logger.info("Parked {} exhausted transactions as dead letters", parks.size());
+    }
+
+    @Transactional(readOnly = true)
+    public PagedResponse<DeadLetterResponse> getDeadLetters(DeadLetterFilter f, int page, int size) {
+        Page<DeadLetter> p = deadLetterRepository.findFiltered(
+                f.getErrorCode(), f.getGateway(), f.getFrom(), f.getTo(), f.getMinAmount(), f.getMaxAmount(),
+                PageRequest.of(page, size));
+        return new PagedResponse<>(
+                p.getContent().stream().map(DeadLetterResponse::new).toList(),
+                p.getNumber(), p.getSize(), p.getTotalElements(), p.getTotalPages(), p.isLast()
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public long countMatching(DeadLetterFilter f) {
+        return deadLetterRepository.countFiltered(
+                f.getErrorCode(), f.getGateway(), f.getFrom(), f.getTo(), f.getMinAmount(), f.getMaxAmount());
+    }
+
+    @Transactional(readOnly = true)
+    public List<DeadLetter> nextChunk(DeadLetterFilter f, long afterId, int limit) {
+        return deadLetterRepository.findFilteredAfter(
+                f.getErrorCode(), f.getGateway(), f.getFrom(), f.getTo(), f.getMinAmount(), f.getMaxAmount(),
+                afterId, PageRequest.of(0, limit));
+    }
+
+    public void remove(Long transactionId) {
+        deadLetterRepository.deleteByTransactionId(transactionId);
+    }
+}
@@ -1,23 +1,23 @@
 package com.example.paymentretry.service;
 
-import com.example.paymentretry.model.ErrorLog;
+import com.example.paymentretry.payload.CursorPagedResponse;
 import com.example.paymentretry.payload.ErrorLogResponse;
+import com.example.paymentretry.payload.ExportFormat;
+import com.example.paymentretry.payload.PageCursor;
 import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.repository.CreatedAtRange;
 import com.example.paymentretry.repository.ErrorLogRepository;
-import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,15 +28,22 @@ public class ErrorLogService {
     private static final Logger logger = LoggerFactory.getLogger(ErrorLogService.class);
     @Autowired
     private final ErrorLogRepository errorLogRepository;
+    @Autowired
+    private final StreamingExporter streamingExporter;
+    @Autowired
+    private final AnalyticsRollupService rollups;
 
-    public ErrorLogService(ErrorLogRepository errorLogRepository) {
+    public ErrorLogService(ErrorLogRepository errorLogRepository, StreamingExporter streamingExporter,
+                           AnalyticsRollupService rollups) {
         this.errorLogRepository = errorLogRepository;
+        this.streamingExporter = streamingExporter;
+        this.rollups = rollups;
     }
 
     /**
      * Fetch paginated error logs, optional filters.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public PagedResponse<ErrorLogResponse> getErrorLogs(
             String errorCode,
             LocalDate startDate,
@@ -44,52 +51,92 @@ public class ErrorLogService {
             int page,
             int size) {
 
-        Pageable pg = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<ErrorLog> p;
+        String code = errorCode != null && !errorCode.isBlank() ? errorCode : null;
+        CreatedAtRange range = CreatedAtRange.ofDays(startDate, endDate);
 
-        if (errorCode != null && !errorCode.isBlank() && startDate != null && endDate != null) {
-            if (endDate.isBefore(startDate)) {
-                throw new IllegalArgumentException("endDate must be on or after startDate");
-            }
-            LocalDateTime start = startDate.atStartOfDay();
-            LocalDateTime end   = endDate.atTime(LocalTime.MAX);
-            p = errorLogRepository.findByErrorCodeAndDateRange(errorCode, start, end, pg);
+        Page<ErrorLogResponse> p = errorLogRepository.findResponses(
+                code, range.from(), range.to(), PageRequest.of(page, size));
 
-        } else if (errorCode != null && !errorCode.isBlank()) {
-            p = errorLogRepository.findByErrorCode(errorCode, pg);
+        return new PagedResponse<>(
+                p.getContent(), p.getNumber(), p.getSize(),
+                p.getTotalElements(), p.getTotalPages(), p.isLast()
+        );
+    }
+
+    /**
+     * Keyset variant of {@link #getErrorLogs}: seeks on (createdAt, id) from an
+     * opaque cursor, so deep pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<ErrorLogResponse> getErrorLogsByCursor(
+            String errorCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            String cursor,
+            int size,
+            boolean includeTotal) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be >= 1");
+        }
+        String code = errorCode != null && !errorCode.isBlank() ? errorCode : null;
+        CreatedAtRange range = CreatedAtRange.ofDays(startDate, endDate);
 
-        } else if (startDate != null && endDate != null) {
+        PageCursor after = PageCursor.decode(cursor);
+        List<ErrorLogResponse> rows = errorLogRepository.findResponsesAfter(
+                code, range.from(), range.to(),
+                after != null ? after.getCreatedAt() : CreatedAtRange.MAX,
+                after != null ? after.getId() : Long.MAX_VALUE,
+                PageRequest.of(0, size + 1));
+        Long total = includeTotal ? errorLogRepository.countFiltered(code, range.from(), range.to()) : null;
+        return CursorPagedResponse.of(rows, size, r -> new PageCursor(r.getCreatedAt(), r.getId()), total);
+    }
+
+    /**
+     * Streams every error log matching the {@link #getErrorLogs} filters, newest first.
+     */
+    public StreamingResponseBody exportErrorLogs(
+            String errorCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            ExportFormat format,
+            boolean gzip) {
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT e.id, e.transaction_id, e.error_code, e.error_message,
+                       e.retry_eligible, e.retry_attempt, e.created_at
+                  FROM error_logs e
+                 WHERE 1 = 1
+                """);
+        List<Object> args = new ArrayList<>();
+        if (errorCode != null && !errorCode.isBlank()) {
+            sql.append(" AND e.error_code = ?");
+            args.add(errorCode);
+        }
+        if (startDate != null && endDate != null) {
             if (endDate.isBefore(startDate)) {
                 throw new IllegalArgumentException("endDate must be on or after startDate");
             }
-            LocalDateTime start = startDate.atStartOfDay();
-            LocalDateTime end   = endDate.atTime(LocalTime.MAX);
-            p = errorLogRepository.findByDateRange(start, end, pg);
-
-        } else {
-            p = errorLogRepository.findAll(pg);
+            sql.append(" AND e.created_at >= ? AND e.created_at < ?");
+            args.add(startDate.atStartOfDay());
+            args.add(endDate.plusDays(1).atStartOfDay());
         }
+        sql.append(" ORDER BY e.created_at DESC, e.id DESC");
 
-        List<ErrorLogResponse> content = p.getContent().stream()
-                .map(this::mapToErrorLogResponse)
-                .collect(Collectors.toList());
-
-        return new PagedResponse<>(
-                content, p.getNumber(), p.getSize(),
-                p.getTotalElements(), p.getTotalPages(), p.isLast()
-        );
+        return streamingExporter.stream("error-logs", sql.toString(), args, List.of(
+                "id", "transactionId", "errorCode", "errorMessage", "retryEligible", "retryAttempt", "createdAt"
+        ), format, gzip);
     }
 
     /**
-     * Fetch top N common error codes and their counts.
+     * Fetch top N common error codes and their counts, from the all-time rollup.
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Map<String,Object>> getMostCommonErrorCodes(int limit) {
         if (limit < 1) {
             throw new IllegalArgumentException("limit must be >= 1");
         }
-        Pageable pg = PageRequest.of(0, limit);
-        List<Object[]> rows = errorLogRepository.findMostCommonErrorCodes(pg);
+        List<Object[]> rows = rollups.mostCommonErrorCodes(limit);
 
         return rows.stream().map(r -> {
             Map<String,Object> m = new HashMap<>();
@@ -98,16 +145,4 @@ public class ErrorLogService {
             return m;
         }).collect(Collectors.toList());
     }
-
-    private ErrorLogResponse mapToErrorLogResponse(ErrorLog log) {
-        return ErrorLogResponse.builder()
-                .id(log.getId())
-                .transactionId(log.getTransaction().getId())
-                .errorCode(log.getErrorCode())
-                .errorMessage(log.getErrorMessage())
-                .retryEligible(log.getRetryEligible())
-                .retryAttempt(log.getRetryAttempt())
-                .createdAt(log.getCreatedAt())
-                .build();
-    }
 }
@@ -0,0 +1,219 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.concurrent.RingBuffer;
+import com.example.paymentretry.model.ErrorLog;
+import com.example.paymentretry.repository.ErrorLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind buffer for error logs. Callers hand rows to a bounded ring buffer and a single
+ * writer inserts them in batches (Hibernate JDBC batching over pooled ids), whenever a batch
+ * fills up or the flush interval passes. During a gateway incident this turns thousands of
+ * single-row inserts into a few batched transactions.
+ * <p>
+ * When the buffer is full, callers wait up to the offer timeout for room; rows that still do
+ * not fit are inserted synchronously on the calling thread, as one batch per call, so the
+ * producer is slowed down to what the database takes. Only rows that fail that insert too
+ * are dropped and counted. Transient insert failures are retried with backoff while the buffer absorbs
+ * new rows; on shutdown whatever is buffered is flushed before the data source goes away.
+ */
+@Service
+public class ErrorLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ErrorLogWriter.class);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Autowired
+    private final ErrorLogRepository errorLogRepository;
+    @Autowired
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    // overflow inserts run from afterCommit, where the finished transaction is still bound
+    private final TransactionTemplate overflowTemplate;
+    private final RingBuffer<ErrorLog> buffer;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ErrorLogWriter(
+            ErrorLogRepository errorLogRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${payment.error-log.buffer.capacity:16384}") int capacity,
+            @Value("${payment.error-log.buffer.batch-size:500}") int batchSize,
+            @Value("${payment.error-log.buffer.flush-interval:200}") long flushIntervalMillis,
+            @Value("${payment.error-log.buffer.offer-timeout:500}") long offerTimeoutMillis
+    ) {
+        this.errorLogRepository = errorLogRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        this.overflowTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.overflowTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.buffer = new RingBuffer<>(capacity);
+        this.dropped = Counter.builder("error-log.buffer.dropped")
+                .description("Error logs dropped because neither the buffer nor a direct insert took them")
+                .register(meterRegistry);
+        Gauge.builder("error-log.buffer.size", buffer, RingBuffer::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = Thread.ofVirtual().name("error-log-writer").start(this::drain);
+        logger.info("Error log write-behind started (capacity {}, batch size {})", buffer.capacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        logger.info("Error log write-behind stopped, {} error logs left unwritten", buffer.size());
+    }
+
+    /**
+     * Buffers error logs for insertion. Inside a transaction they are only buffered once it
+     * commits, so a rolled-back attempt leaves no error log behind, as before.
+     */
+    public void write(List<ErrorLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(logs);
+                }
+            });
+        } else {
+            offer(logs);
+        }
+    }
+
+    public void write(ErrorLog log) {
+        write(List.of(log));
+    }
+
+    public int backlog() {
+        return buffer.size();
+    }
+
+    private void offer(List<ErrorLog> logs) {
+        long deadline = System.nanoTime() + offerTimeoutNanos;
+        List<ErrorLog> overflow = new ArrayList<>();
+        for (var log : logs) {
+            if (!offer(log, deadline)) {
+                overflow.add(log);
+            }
+        }
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        if (!overflow.isEmpty()) {
+            insertOverflow(overflow);
+        }
+    }
+
+    private boolean offer(ErrorLog log, long deadline) {
+        while (running && !buffer.offer(log)) {
+            LockSupport.unpark(writer);
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        return running;
+    }
+
+    // the buffer stayed full (or is shutting down): write on the caller's thread instead
+    private void insertOverflow(List<ErrorLog> logs) {
+        logger.warn("Error log buffer full ({}), inserting {} error logs directly", buffer.capacity(), logs.size());
+        try {
+            overflowTemplate.executeWithoutResult(status -> errorLogRepository.saveAll(logs));
+        } catch (Exception ex) {
+            dropped.increment(logs.size());
+            for (var log : logs) {
+                logger.error("Dropping error log {} for tx {}: {}", log.getErrorCode(),
+                        log.getTransaction() != null ? log.getTransaction().getId() : null, log.getErrorMessage());
+            }
+            logger.error("Direct insert of {} error logs failed", logs.size(), ex);
+        }
+    }
+
+    // keeps draining after stop() until the buffer is empty
+    private void drain() {
+        List<ErrorLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            if (running && buffer.size() < batchSize) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<ErrorLog> batch) {
+        long backoff = flushIntervalNanos;
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> errorLogRepository.saveAll(batch));
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException ex) {
+                // ids handed out by the rolled-back insert; keep them from turning the retry into merges
+                batch.forEach(log -> log.setId(null));
+                if (!running) {
+                    logger.error("Dropping {} error logs on shutdown: {}", batch.size(), ex.getMessage());
+                    dropped.increment(batch.size());
+                    return;
+                }
+                logger.warn("Error log batch of {} failed, retrying: {}", batch.size(), ex.getMessage());
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            } catch (Exception ex) {
+                // not going to succeed on retry; write one by one so a bad row does not
+                // take the rest of the batch with it
+                logger.error("Error log batch of {} failed, writing individually: {}", batch.size(), ex.getMessage(), ex);
+                for (var log : batch) {
+                    log.setId(null);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> errorLogRepository.save(log));
+                    } catch (Exception itemEx) {
+                        dropped.increment();
+                        logger.error("Dropping error log {} for tx {}: {}", log.getErrorCode(),
+                                log.getTransaction() != null ? log.getTransaction().getId() : null, itemEx.getMessage());
+                    }
+                }
+                return;
+            }
+        }
+    }
+}
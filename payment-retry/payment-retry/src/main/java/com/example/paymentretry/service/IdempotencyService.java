@@ -0,0 +1,202 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.cache.BoundedCache;
+import com.example.paymentretry.exception.IdempotencyConflictException;
+import com.example.paymentretry.model.IdempotencyRecord;
+import com.example.paymentretry.payload.TransactionRequest;
+import com.example.paymentretry.payload.TransactionResponse;
+import com.example.paymentretry.repository.IdempotencyRecordRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Client Idempotency-Key support for transaction creation.
+ * A hot in-memory tier answers replays on this node; the idempotency_keys table reserves the key
+ * across nodes and survives restarts until the TTL expires. Concurrent duplicates on this node
+ * wait for the single in-flight request instead of creating their own transaction.
+ * <p>
+ * A reservation that never completes (the node died mid-request) holds the key only for a
+ * short lease; after that the next request with the key reclaims it. The lease has to outlast
+ * the slowest creation, since a request that finishes after losing its key has still created
+ * its transaction.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final long ttlMillis;
+    private final long leaseMillis;
+    private final BoundedCache<String, StoredResponse> hot;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(
+            IdempotencyRecordRepository idempotencyRecordRepository,
+            @Value("${payment.idempotency.ttl:86400000}") long ttlMillis,
+            @Value("${payment.idempotency.hot-size:10000}") int hotSize,
+            @Value("${payment.idempotency.lease:60000}") long leaseMillis) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.ttlMillis = ttlMillis;
+        this.leaseMillis = leaseMillis;
+        this.hot = new BoundedCache<>(hotSize, ttlMillis);
+    }
+
+    /**
+     * Runs {@code create} at most once per (user, key). A replay returns the stored response,
+     * or the response rebuilt by {@code load} from the original transaction id when only the
+     * DB tier remembers it. Reusing a key with a different request body is rejected.
+     */
+    public TransactionResponse execute(Long userId, String key, TransactionRequest req,
+                                       Supplier<TransactionResponse> create,
+                                       Function<Long, TransactionResponse> load) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String scope = userId + ":" + key;
+        String hash = fingerprint(req);
+
+        var mine = new CompletableFuture<StoredResponse>();
+        var existing = inFlight.putIfAbsent(scope, mine);
+        if (existing != null) {
+            logger.debug("Coalescing duplicate request for Idempotency-Key {}", key);
+            return verify(await(existing), hash).response();
+        }
+        try {
+            var stored = resolve(userId, key, scope, hash, create, load);
+            mine.complete(stored);
+            return verify(stored, hash).response();
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(scope, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int removed = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.info("Purged {} expired idempotency keys", removed);
+        }
+    }
+
+    private StoredResponse resolve(Long userId, String key, String scope, String hash,
+                                   Supplier<TransactionResponse> create,
+                                   Function<Long, TransactionResponse> load) {
+        var cached = hot.get(scope);
+        if (cached != null) {
+            return cached;
+        }
+
+        IdempotencyRecord reservation;
+        try {
+            reservation = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(
+                    userId, key, hash, LocalDateTime.now().plusNanos(ttlMillis * 1_000_000L)));
+        } catch (DataIntegrityViolationException dup) {
+            return replay(userId, key, scope, hash, create, load);
+        }
+
+        TransactionResponse response;
+        try {
+            response = create.get();
+        } catch (RuntimeException ex) {
+            // nothing was created, let the client retry with the same key
+            idempotencyRecordRepository.delete(reservation);
+            throw ex;
+        }
+        if (idempotencyRecordRepository.complete(reservation.getId(), response.getId()) == 0) {
+            logger.warn("Idempotency-Key {} for user {} was reclaimed before tx {} was created; raise payment.idempotency.lease",
+                    key, userId, response.getId());
+        }
+
+        var stored = new StoredResponse(hash, response);
+        hot.put(scope, stored);
+        return stored;
+    }
+
+    private StoredResponse replay(Long userId, String key, String scope, String hash,
+                                  Supplier<TransactionResponse> create,
+                                  Function<Long, TransactionResponse> load) {
+        var record = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key)
+                .orElse(null);
+        if (record == null) {
+            // reservation vanished between insert and read (failed original); try again
+            return resolve(userId, key, scope, hash, create, load);
+        }
+        if (record.getExpiresAt().isBefore(LocalDateTime.now())) {
+            idempotencyRecordRepository.delete(record);
+            return resolve(userId, key, scope, hash, create, load);
+        }
+        if (!record.getRequestHash().equals(hash)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used with a different request");
+        }
+        if (!record.isCompleted()) {
+            var leasedSince = LocalDateTime.now().minusNanos(leaseMillis * 1_000_000L);
+            if (record.getCreatedAt() != null && record.getCreatedAt().isBefore(leasedSince)
+                    && idempotencyRecordRepository.deleteAbandoned(record.getId(), leasedSince) == 1) {
+                logger.warn("Reclaiming abandoned Idempotency-Key {} for user {}", key, userId);
+                return resolve(userId, key, scope, hash, create, load);
+            }
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        }
+        logger.info("Replaying Idempotency-Key {} for user {} -> tx {}", key, userId, record.getTransactionId());
+        var stored = new StoredResponse(hash, load.apply(record.getTransactionId()));
+        hot.put(scope, stored);
+        return stored;
+    }
+
+    private static StoredResponse verify(StoredResponse stored, String hash) {
+        if (!stored.requestHash().equals(hash)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used with a different request");
+        }
+        return stored;
+    }
+
+    private static StoredResponse await(CompletableFuture<StoredResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ex;
+        }
+    }
+
+    private static String fingerprint(TransactionRequest req) {
+        String canonical = req.getPaymentMethodId() + "|"
+                + (req.getAmount() != null ? req.getAmount().stripTrailingZeros().toPlainString() : "") + "|"
+                + req.getCurrency() + "|"
+                + req.getAllowRetry();
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record StoredResponse(String requestHash, TransactionResponse response) {}
+}
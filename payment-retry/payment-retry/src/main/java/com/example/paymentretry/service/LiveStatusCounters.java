@@ -0,0 +1,173 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.event.TransactionStatusChangedEvent;
+import com.example.paymentretry.model.TransactionStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live transaction counts per gateway and status, kept in {@link LongAdder}s that every
+ * committed status change moves, so reading them never touches the database. Per-status
+ * totals are summed over the (few) gateways on read.
+ * <p>
+ * The counts are seeded from a GROUP BY once the application is ready and reconciled with
+ * it periodically. Reconciling adds the difference between the database and the counters
+ * as read just before the query. A change that commits between that read and the query's
+ * snapshot is counted twice (once by the query, once by its event), and one whose event
+ * lands before the read but commits after the snapshot is missed, so counts can drift by
+ * the changes in flight during a reconcile; the next reconcile corrects that. Transitions
+ * made by other nodes, archival and partition expiry likewise only show up here at the
+ * next reconcile.
+ */
+@Service
+public class LiveStatusCounters {
+    private static final Logger logger = LoggerFactory.getLogger(LiveStatusCounters.class);
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final String UNKNOWN_GATEWAY = "UNKNOWN";
+
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+    @Autowired
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, LongAdder[]> byGateway = new ConcurrentHashMap<>();
+
+    public LiveStatusCounters(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TransactionStatusChangedEvent event) {
+        LongAdder[] counters = counters(event.gateway());
+        if (event.previousStatus() != null) {
+            counters[event.previousStatus().ordinal()].decrement();
+        }
+        counters[event.status().ordinal()].increment();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.live-counts.reconcile-interval:300000}",
+            initialDelayString = "${payment.live-counts.reconcile-interval:300000}")
+    public void reconcile() {
+        Map<String, long[]> before = new HashMap<>();
+        byGateway.forEach((gateway, counters) -> before.put(gateway, read(counters)));
+
+        Map<String, long[]> actual = new HashMap<>();
+        try {
+            jdbcTemplate.query("SELECT gateway, status, COUNT(*) FROM transactions GROUP BY gateway, status", rs -> {
+                actual.computeIfAbsent(gateway(rs.getString(1)), g -> new long[STATUSES.length])
+                        [TransactionStatus.valueOf(rs.getString(2)).ordinal()] += rs.getLong(3);
+            });
+        } catch (DataAccessException ex) {
+            logger.error("Could not reconcile live status counts", ex);
+            return;
+        }
+
+        long drift = 0;
+        var gateways = new HashSet<>(before.keySet());
+        gateways.addAll(actual.keySet());
+        for (String gateway : gateways) {
+            long[] was = before.getOrDefault(gateway, new long[STATUSES.length]);
+            long[] is = actual.getOrDefault(gateway, new long[STATUSES.length]);
+            LongAdder[] counters = counters(gateway);
+            for (int i = 0; i < STATUSES.length; i++) {
+                long diff = is[i] - was[i];
+                if (diff != 0) {
+                    counters[i].add(diff);
+                    drift += Math.abs(diff);
+                }
+            }
+        }
+        if (drift > 0) {
+            logger.debug("Reconciled live status counts, corrected by {}", drift);
+        }
+    }
+
+    public Map<TransactionStatus, Long> byStatus() {
+        Map<TransactionStatus, Long> totals = new EnumMap<>(TransactionStatus.class);
+        for (TransactionStatus status : STATUSES) {
+            totals.put(status, 0L);
+        }
+        byGateway.values().forEach(counters -> {
+            for (TransactionStatus status : STATUSES) {
+                totals.merge(status, Math.max(0, counters[status.ordinal()].sum()), Long::sum);
+            }
+        });
+        return totals;
+    }
+
+    public Map<String, Map<TransactionStatus, Long>> byGateway() {
+        Map<String, Map<TransactionStatus, Long>> result = new TreeMap<>();
+        byGateway.forEach((gateway, counters) -> {
+            Map<TransactionStatus, Long> counts = new EnumMap<>(TransactionStatus.class);
+            for (TransactionStatus status : STATUSES) {
+                counts.put(status, Math.max(0, counters[status.ordinal()].sum()));
+            }
+            result.put(gateway, counts);
+        });
+        return result;
+    }
+
+    public long count(TransactionStatus status) {
+        long total = 0;
+        for (LongAdder[] counters : byGateway.values()) {
+            total += counters[status.ordinal()].sum();
+        }
+        return Math.max(0, total);
+    }
+
+    private LongAdder[] counters(String gateway) {
+        return byGateway.computeIfAbsent(gateway(gateway), this::register);
+    }
+
+    /**
+     * New gateway: one gauge per status, tagged so dashboards can sum either way.
+     */
+    private LongAdder[] register(String gateway) {
+        var counters = new LongAdder[STATUSES.length];
+        for (TransactionStatus status : STATUSES) {
+            LongAdder adder = new LongAdder();
+            counters[status.ordinal()] = adder;
+            Gauge.builder("transaction.status.live", adder, a -> Math.max(0, a.sum()))
+                    .description("Transactions currently in a status, kept in memory")
+                    .tag("gateway", gateway)
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+
+    private static long[] read(LongAdder[] counters) {
+        long[] values = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            values[i] = counters[i].sum();
+        }
+        return values;
+    }
+
+    private static String gateway(String gateway) {
+        return gateway != null ? gateway : UNKNOWN_GATEWAY;
+    }
+}
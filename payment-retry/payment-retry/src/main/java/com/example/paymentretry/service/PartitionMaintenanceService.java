@@ -0,0 +1,232 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.repository.MonthlyPartitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the monthly partitions of transactions and error_logs in shape: months are created
+ * ahead so p_future stays empty, and with a retention set, months past it are dropped (or
+ * exchanged out into a standalone {@code <table>_pYYYYMM} table for offline export) as a
+ * metadata operation instead of bulk DELETEs.
+ * <p>
+ * A transactions month is only expired once nothing in it is still actionable, and its
+ * retry configurations are deleted once the partition is actually gone: DROP and EXCHANGE
+ * commit on their own, so they cannot share a transaction with the delete, and deleting
+ * first would leave a month without its configurations whenever the partition operation
+ * failed. error_logs are expired after it, and only for months no transactions month at or
+ * before is still kept: a transaction's error logs are never older than the transaction, so
+ * a held-back transactions month keeps its error logs too.
+ */
+@Service
+public class PartitionMaintenanceService {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+    @Autowired
+    private final NamedParameterJdbcTemplate namedJdbc;
+    @Autowired
+    private final AnalyticsRollupService rollups;
+
+    @Value("${payment.partitions.months-ahead:3}")
+    private int monthsAhead;
+    @Value("${payment.partitions.retention-months:0}")
+    private int retentionMonths;
+    @Value("${payment.partitions.retention-action:drop}")
+    private String retentionAction;
+    @Value("${payment.partitions.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    public PartitionMaintenanceService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbc,
+                                       AnalyticsRollupService rollups) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = namedJdbc;
+        this.rollups = rollups;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.partitions.maintenance-interval:86400000}",
+            initialDelayString = "${payment.partitions.initial-delay:60000}")
+    public void maintain() {
+        for (String table : MonthlyPartitions.TABLES) {
+            try {
+                createAhead(table);
+            } catch (DataAccessException ex) {
+                logger.error("Could not add partitions to {}", table, ex);
+            }
+        }
+        if (retentionMonths <= 0) {
+            return;
+        }
+        var oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        try {
+            expire("transactions", oldestKept);
+        } catch (DataAccessException ex) {
+            logger.error("Could not expire partitions of transactions", ex);
+        }
+        try {
+            List<YearMonth> transactionMonths = months("transactions");
+            if (transactionMonths.isEmpty()) {
+                return;
+            }
+            YearMonth oldestTransactions = transactionMonths.get(0);
+            expire("error_logs", oldestTransactions.isBefore(oldestKept) ? oldestTransactions : oldestKept);
+        } catch (DataAccessException ex) {
+            logger.error("Could not expire partitions of error_logs", ex);
+        }
+    }
+
+    /**
+     * Splits p_future into the missing months up to months-ahead. While p_future is empty
+     * this only touches metadata.
+     */
+    private void createAhead(String table) {
+        List<YearMonth> months = months(table);
+        if (months.isEmpty()) {
+            logger.debug("{} is not partitioned by month; skipping", table);
+            return;
+        }
+        YearMonth last = months.get(months.size() - 1);
+        YearMonth target = YearMonth.now().plusMonths(monthsAhead);
+        if (!last.isBefore(target)) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + MonthlyPartitions.FUTURE
+                + " INTO (" + MonthlyPartitions.definitions(last.plusMonths(1), target) + ")");
+        logger.info("Added {} partitions {} through {}", table, last.plusMonths(1), target);
+    }
+
+    private void expire(String table, YearMonth oldestKept) {
+        for (YearMonth month : months(table)) {
+            if (!month.isBefore(oldestKept)) {
+                break;
+            }
+            String partition = MonthlyPartitions.name(month);
+            Map<String, Object> ids = null;
+            if (table.equals("transactions")) {
+                if (!settled(partition)) {
+                    continue;
+                }
+                ids = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM transactions PARTITION ("
+                        + partition + ")");
+            }
+            rollups.seal(month.plusMonths(1).atDay(1).atStartOfDay());
+            if ("exchange".equalsIgnoreCase(retentionAction) && !exchangeOut(table, partition)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition);
+            logger.info("Dropped {} partition {}", table, partition);
+            if (ids != null && ids.get("lo") != null) {
+                releaseRetryConfigurations(((Number) ids.get("lo")).longValue(), ((Number) ids.get("hi")).longValue());
+            }
+        }
+    }
+
+    /**
+     * Swaps a month into a standalone {@code <table>_pYYYYMM} table. A staging table left by a
+     * run that died before the exchange is empty and dropped first; one that already holds
+     * rows is a finished export, so the month is only dropped if the exchange went through
+     * (the partition is empty), and otherwise kept for someone to look at.
+     */
+    private boolean exchangeOut(String table, String partition) {
+        String target = table + "_" + partition;
+        if (exists(target) && hasRows(target)) {
+            if (hasRows(table + " PARTITION (" + partition + ")")) {
+                logger.error("Keeping {} partition {}: {} already exists and holds rows", table, partition, target);
+                return false;
+            }
+            logger.info("{} {} was already exchanged out to {}", table, partition, target);
+            return true;
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + target);
+        jdbcTemplate.execute("CREATE TABLE " + target + " LIKE " + table);
+        jdbcTemplate.execute("ALTER TABLE " + target + " REMOVE PARTITIONING");
+        jdbcTemplate.execute("ALTER TABLE " + table + " EXCHANGE PARTITION " + partition
+                + " WITH TABLE " + target);
+        logger.info("Exchanged {} {} out to {}", table, partition, target);
+        return true;
+    }
+
+    private boolean exists(String table) {
+        Integer found = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*)
+                  FROM information_schema.TABLES
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+                """, Integer.class, table);
+        return found != null && found > 0;
+    }
+
+    private boolean hasRows(String source) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM " + source + " LIMIT 1").isEmpty();
+    }
+
+    /**
+     * False, leaving the month in place, while any of its transactions is unsettled,
+     * dead-lettered or queued for retry.
+     */
+    private boolean settled(String partition) {
+        Integer live = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*)
+                  FROM transactions PARTITION (%s) t
+                 WHERE t.status NOT IN ('SUCCESS', 'FAILED')
+                    OR EXISTS (SELECT 1 FROM dead_letters d WHERE d.transaction_id = t.id)
+                    OR EXISTS (SELECT 1 FROM retry_due q WHERE q.transaction_id = t.id)
+                """.formatted(partition), Integer.class);
+        if (live != null && live > 0) {
+            logger.warn("Keeping transactions partition {}: {} transactions are still actionable", partition, live);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes, in batches, the retry configurations in a dropped month's id range whose
+     * transaction no longer exists. Configurations of other months' transactions that share
+     * the range are left alone.
+     */
+    private void releaseRetryConfigurations(long fromId, long toId) {
+        long afterId = fromId - 1;
+        int deleted = 0;
+        while (true) {
+            List<Long> orphans = jdbcTemplate.queryForList("""
+                    SELECT rc.transaction_id
+                      FROM retry_configurations rc
+                      LEFT JOIN transactions t ON t.id = rc.transaction_id
+                     WHERE rc.transaction_id > ? AND rc.transaction_id <= ?
+                       AND t.id IS NULL
+                     ORDER BY rc.transaction_id
+                     LIMIT ?
+                    """, Long.class, afterId, toId, deleteBatchSize);
+            if (orphans.isEmpty()) {
+                break;
+            }
+            deleted += namedJdbc.update("DELETE FROM retry_configurations WHERE transaction_id IN (:ids)",
+                    Map.of("ids", orphans));
+            afterId = orphans.get(orphans.size() - 1);
+        }
+        logger.info("Deleted {} retry configurations of expired transactions {} through {}", deleted, fromId, toId);
+    }
+
+    private List<YearMonth> months(String table) {
+        return jdbcTemplate.queryForList("""
+                        SELECT PARTITION_NAME
+                          FROM information_schema.PARTITIONS
+                         WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                         ORDER BY PARTITION_ORDINAL_POSITION
+                        """, String.class, table).stream()
+                .map(MonthlyPartitions::month)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
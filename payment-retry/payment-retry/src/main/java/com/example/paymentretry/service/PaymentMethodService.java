@@ -1,10 +1,13 @@
 package com.example.paymentretry.service;
 
+import com.example.paymentretry.cache.PaymentMethodDeclineCache;
+import com.example.paymentretry.cache.TerminalTransactionCache;
 import com.example.paymentretry.exception.ResourceNotFoundException;
 import com.example.paymentretry.exception.UnauthorisedAccess;
 import com.example.paymentretry.model.PaymentMethod;
 import com.example.paymentretry.model.User;
 import com.example.paymentretry.payload.CustomApiResponse;
+import com.example.paymentretry.payload.ETags;
 import com.example.paymentretry.payload.PaymentMethodRequest;
 import com.example.paymentretry.payload.PaymentMethodResponse;
 import com.example.paymentretry.repository.PaymentMethodRepository;
@@ -30,6 +33,12 @@ public class PaymentMethodService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PaymentMethodDeclineCache declineCache;
+
+    @Autowired
+    private TerminalTransactionCache terminalCache;
+
     // Add a new payment method
     @Transactional
     public CustomApiResponse<PaymentMethodResponse> addPaymentMethod(Long userId, PaymentMethodRequest req) {
@@ -84,6 +93,24 @@ public class PaymentMethodService {
         return CustomApiResponse.success(map(pm), "Fetched payment method successfully", true);
     }
 
+    // ETag for GET /payment-methods: ids and updatedAt of every method the user owns
+    public String getUserPaymentMethodsETag(Long userId) {
+        return ETags.ofRows("pms-" + userId, paymentMethodRepository.findVersionsByUserId(userId));
+    }
+
+    // ETag for GET /payment-methods/{id}; same 404/403 outcomes as getPaymentMethodById
+    public String getPaymentMethodETag(Long userId, Long pmId) {
+        List<Object[]> rows = paymentMethodRepository.findVersionById(pmId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("PaymentMethod", "id", pmId);
+        }
+        Object[] row = rows.get(0);
+        if (!userId.equals(row[0])) {
+            throw new UnauthorisedAccess("You don't have permission to view this payment method");
+        }
+        return ETags.of("pm-" + pmId, row[1]);
+    }
+
     @Transactional
     public CustomApiResponse<PaymentMethodResponse> updatePaymentMethod(
             Long userId, Long pmId, PaymentMethodRequest req) {
@@ -109,6 +136,9 @@ public class PaymentMethodService {
         pm.setDefault(req.getDefault());
 
         pm = paymentMethodRepository.save(pm);
+        // updated details may fix whatever caused a hard decline
+        declineCache.invalidate(pmId);
+        terminalCache.evictByPaymentMethod(pmId);
 
         return CustomApiResponse.success(map(pm), "Payment method updated successfully", true);
     }
@@ -123,6 +153,8 @@ public class PaymentMethodService {
         }
 
         paymentMethodRepository.delete(pm);
+        declineCache.invalidate(pmId);
+        terminalCache.evictByPaymentMethod(pmId);
         return CustomApiResponse.success(null, "Payment method deleted successfully", true);
     }
 
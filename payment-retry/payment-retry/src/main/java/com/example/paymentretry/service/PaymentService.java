@@ -1,9 +1,14 @@
 package com.example.paymentretry.service;
 
+import com.example.paymentretry.cache.CallbackDeduplicator;
+import com.example.paymentretry.cache.InFlightTransactionCache;
+import com.example.paymentretry.cache.InFlightTransactionCache.InFlightTransaction;
+import com.example.paymentretry.cache.PaymentMethodDeclineCache;
+import com.example.paymentretry.event.TransactionEventPublisher;
 import com.example.paymentretry.exception.ResourceNotFoundException;
 import com.example.paymentretry.model.*;
+import com.example.paymentretry.payload.BatchItemResult;
 import com.example.paymentretry.payload.PaymentCallbackRequest;
-import com.example.paymentretry.repository.ErrorLogRepository;
 import com.example.paymentretry.repository.RetryConfigurationRepository;
 import com.example.paymentretry.repository.TransactionRepository;
 import jakarta.transaction.Transactional;
@@ -13,15 +18,30 @@ import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
@@ -31,11 +51,27 @@ public class PaymentService {
     @Autowired
     private final RetryConfigurationRepository retryConfigurationRepository;
     @Autowired
-    private final ErrorLogRepository errorLogRepository;
+    private final ErrorLogWriter errorLogWriter;
     @Autowired
     private final RabbitTemplate rabbitTemplate;
     @Autowired
     private final RestTemplate restTemplate;
+    @Autowired
+    private final PaymentMethodDeclineCache declineCache;
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+    @Autowired
+    private final CallbackDeduplicator callbackDeduplicator;
+    @Autowired
+    private final InFlightTransactionCache inFlightCache;
+    @Autowired
+    private final TransactionEventPublisher transactionEvents;
+    @Autowired
+    private final TransactionTransitions transitions;
+    @Autowired
+    private final RetryQueue retryDueQueue;
+    @Autowired
+    private final DeadLetterService deadLetters;
 
     @Value("${payment.gateway.url}")
     private String gatewayUrl;
@@ -52,61 +88,110 @@ public class PaymentService {
     public PaymentService(
             TransactionRepository transactionRepository,
             RetryConfigurationRepository retryConfigurationRepository,
-            ErrorLogRepository errorLogRepository,
+            ErrorLogWriter errorLogWriter,
             RabbitTemplate rabbitTemplate,
-            RestTemplate restTemplate
+            RestTemplate restTemplate,
+            PaymentMethodDeclineCache declineCache,
+            JdbcTemplate jdbcTemplate,
+            CallbackDeduplicator callbackDeduplicator,
+            InFlightTransactionCache inFlightCache,
+            TransactionEventPublisher transactionEvents,
+            TransactionTransitions transitions,
+            RetryQueue retryDueQueue,
+            DeadLetterService deadLetters
     ) {
         this.transactionRepository = transactionRepository;
         this.retryConfigurationRepository = retryConfigurationRepository;
-        this.errorLogRepository = errorLogRepository;
+        this.errorLogWriter = errorLogWriter;
         this.rabbitTemplate = rabbitTemplate;
         this.restTemplate = restTemplate;
+        this.declineCache = declineCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.callbackDeduplicator = callbackDeduplicator;
+        this.inFlightCache = inFlightCache;
+        this.transactionEvents = transactionEvents;
+        this.transitions = transitions;
+        this.retryDueQueue = retryDueQueue;
+        this.deadLetters = deadLetters;
     }
 
     /**
-     * Kicks off a new payment: generates reference, persists, then async-calls the gateway.
+     * Kicks off a new payment: generates reference, persists, then async-calls the gateway
+     * once the surrounding transaction commits.
      */
     @Transactional
     public void initiatePayment(Transaction tx) {
+        initiatePayment(tx, retryConfigurationRepository.findByTransaction(tx).orElse(null));
+    }
+
+    /**
+     * Same as {@link #initiatePayment(Transaction)} for callers that already hold the retry config
+     * (null if the transaction has none).
+     */
+    @Transactional
+    public void initiatePayment(Transaction tx, RetryConfiguration rc) {
         String externalRef = UUID.randomUUID().toString();
         tx.setExternalReferenceId(externalRef);
         transactionRepository.save(tx);
+        inFlightCache.put(tx, rc);
         logger.info("Initiating payment for tx {} with ref {}", tx.getId(), externalRef);
+        dispatchAfterCommit(List.of(tx), "ASYNC_INIT_ERROR");
+    }
 
-        CompletableFuture.runAsync(() -> {
-            try {
-                // TODO: replace with real API call
-                simulatePaymentProcessing(tx);
-            } catch (Exception ex) {
-                logger.error("Async initiatePayment error for tx {}: {}", tx.getId(), ex.getMessage(), ex);
-                handlePaymentError(tx, "ASYNC_INIT_ERROR", ex.getMessage());
-            }
-        });
+    /**
+     * Bulk counterpart of {@link #initiatePayment(Transaction, RetryConfiguration)} for transactions
+     * inserted with their external reference already assigned. Gateway calls are handed to the
+     * async pipeline once the inserting transaction commits, so none of them can race the insert.
+     */
+    public void dispatchPayments(List<Transaction> txs, Map<Long, RetryConfiguration> rcByTxId) {
+        txs.forEach(tx -> inFlightCache.put(tx, rcByTxId.get(tx.getId())));
+        dispatchAfterCommit(txs, "ASYNC_INIT_ERROR");
     }
 
     /**
-     * Called for a manual or scheduled retry.
+     * Hands gateway calls to the async pipeline once the surrounding transaction commits, so
+     * neither the call nor its error handling can see the transaction, its retry config or
+     * its attempt count before they are committed. On rollback the in-flight entries go.
+     */
+    private void dispatchAfterCommit(List<Transaction> txs, String asyncErrorCode) {
+        Runnable send = () -> txs.forEach(tx -> dispatch(tx, asyncErrorCode));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send.run();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        txs.forEach(tx -> inFlightCache.evict(tx.getExternalReferenceId()));
+                    }
+                }
+            });
+        } else {
+            send.run();
+        }
+    }
+
+    /**
+     * Called for a manual or scheduled retry; the gateway call goes out after commit.
      * Does *not* reset attempts—caller should increment before calling.
      */
     @Transactional
     public void retryPayment(Transaction tx) {
+        var rc = retryConfigurationRepository.findByTransaction(tx).orElse(null);
         logger.info("Retrying payment for tx {} (attempt {})",
-                tx.getId(),
-                retryConfigurationRepository.findByTransaction(tx)
-                        .map(RetryConfiguration::getCurrentAttempts).orElse(0));
+                tx.getId(), rc != null ? rc.getCurrentAttempts() : 0);
 
-        // update status
-        tx.setStatus(TransactionStatus.RETRY_IN_PROGRESS);
-        transactionRepository.save(tx);
-
-        CompletableFuture.runAsync(() -> {
-            try {
-                simulatePaymentProcessing(tx);
-            } catch (Exception ex) {
-                logger.error("Async retryPayment error for tx {}: {}", tx.getId(), ex.getMessage(), ex);
-                handlePaymentError(tx, "ASYNC_RETRY_ERROR", ex.getMessage());
-            }
-        });
+        // the scheduler claims RETRY_IN_PROGRESS itself; manual retries arrive RETRY_SCHEDULED
+        if (tx.getStatus() != TransactionStatus.RETRY_IN_PROGRESS
+                && !transitions.transition(tx, TransactionStatus.RETRY_IN_PROGRESS)) {
+            logger.info("Dropping retry for tx {}: status changed concurrently", tx.getId());
+            return;
+        }
+        inFlightCache.put(tx, rc);
+        dispatchAfterCommit(List.of(tx), "ASYNC_RETRY_ERROR");
     }
 
     /**
@@ -115,51 +200,247 @@ public class PaymentService {
      */
     @Transactional
     public void processPaymentCallback(PaymentCallbackRequest cb) {
-        Transaction tx = transactionRepository
-                .findByExternalReferenceId(cb.getExternalReferenceId())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Transaction", "externalReferenceId", cb.getExternalReferenceId()));
+        var result = processPaymentCallbacks(List.of(cb)).get(0);
+        if (!result.isSuccess()) {
+            throw new ResourceNotFoundException(
+                    "Transaction", "externalReferenceId", cb.getExternalReferenceId());
+        }
+    }
 
+    /**
+     * Applies a batch of gateway callbacks in a single DB transaction.
+     * Transactions are resolved from the in-flight cache, with IN queries only for misses;
+     * status changes are a JDBC batch of compare-and-set updates and error logs go to the
+     * write-behind {@link ErrorLogWriter} once the batch commits. Returns one result per
+     * callback, in input order; unknown references are reported, not thrown, and updates that
+     * lose to a concurrent writer are reported as STALE.
+     */
+    @Transactional
+    public List<BatchItemResult<String>> processPaymentCallbacks(List<PaymentCallbackRequest> callbacks) {
+        // drop redeliveries before paying for any lookups
+        List<PaymentCallbackRequest> claimed = new ArrayList<>();
+        boolean[] duplicate = new boolean[callbacks.size()];
+        for (int i = 0; i < callbacks.size(); i++) {
+            if (callbackDeduplicator.claim(callbacks.get(i))) {
+                claimed.add(callbacks.get(i));
+            } else {
+                duplicate[i] = true;
+            }
+        }
+        releaseOnRollback(claimed);
+
+        Map<String, InFlightTransaction> resolved = resolveInFlight(claimed);
+
+        List<BatchItemResult<String>> results = new ArrayList<>(callbacks.size());
+        List<ErrorLog> errorLogs = new ArrayList<>();
+        Map<Long, StatusUpdate> updates = new LinkedHashMap<>();
+        Map<Long, InFlightTransaction> touched = new HashMap<>();
+        Map<Long, List<Integer>> indexesByTxId = new HashMap<>();
+
+        for (int i = 0; i < callbacks.size(); i++) {
+            var cb = callbacks.get(i);
+            if (duplicate[i]) {
+                logger.debug("Suppressed duplicate callback for {}", cb.getExternalReferenceId());
+                results.add(BatchItemResult.ok(i, "DUPLICATE", cb.getExternalReferenceId()));
+                continue;
+            }
+            var tx = resolved.get(cb.getExternalReferenceId());
+            if (tx == null) {
+                logger.warn("Callback for unknown externalReferenceId {}", cb.getExternalReferenceId());
+                callbackDeduplicator.release(cb);
+                results.add(BatchItemResult.failed(i, "NOT_FOUND", "Transaction not found"));
+                continue;
+            }
+            var update = applyCallback(tx, cb, errorLogs);
+            updates.put(tx.transactionId(), update);
+            touched.putIfAbsent(tx.transactionId(), tx);
+            indexesByTxId.computeIfAbsent(tx.transactionId(), k -> new ArrayList<>()).add(i);
+            results.add(BatchItemResult.ok(i, "APPLIED", cb.getExternalReferenceId()));
+        }
+
+        errorLogWriter.write(errorLogs);
+        Map<Long, TransactionStatus> movedFrom = applyStatusUpdates(updates, touched);
+        Map<Long, LocalDateTime> retriesDue = new HashMap<>();
+        List<Long> resolvedIds = new ArrayList<>();
+        List<DeadLetterService.Park> exhausted = new ArrayList<>();
+        updates.forEach((txId, update) -> {
+            var tx = touched.get(txId);
+            var previous = movedFrom.get(txId);
+            if (previous == null) {
+                logger.info("Dropped stale callback update for tx {} to {}", txId, update.status());
+                inFlightCache.evict(tx.externalReferenceId());
+                for (int i : indexesByTxId.get(txId)) {
+                    results.set(i, BatchItemResult.ok(i, "STALE", callbacks.get(i).getExternalReferenceId()));
+                }
+                return;
+            }
+            if (update.status() == TransactionStatus.SUCCESS || update.status() == TransactionStatus.FAILED) {
+                inFlightCache.evict(tx.externalReferenceId());
+                resolvedIds.add(txId);
+                if (update.status() == TransactionStatus.FAILED && tx.hasRetryConfig() && tx.attempts() >= tx.maxRetries()) {
+                    exhausted.add(new DeadLetterService.Park(txId, update.errorCode(), tx.attempts()));
+                }
+            } else {
+                inFlightCache.put(tx.withStatus(update.status()));
+                retriesDue.put(txId, retryDueQueue.nextDueAt(tx.strategy(), tx.retryInterval(), tx.attempts()));
+            }
+            transactionEvents.statusChanged(txId, tx.userId(), tx.gateway(), previous, update.status());
+            rabbitTemplate.convertAndSend(notificationQueue, txId);
+        });
+        retryDueQueue.scheduleAll(retriesDue);
+        retryDueQueue.removeAll(resolvedIds);
+        deadLetters.parkAll(exhausted);
+        return results;
+    }
+
+    /**
+     * Resolves callback references from the in-flight cache, falling back to one IN query
+     * (plus one for retry configs) for the misses.
+     */
+    private Map<String, InFlightTransaction> resolveInFlight(List<PaymentCallbackRequest> callbacks) {
+        Map<String, InFlightTransaction> resolved = new HashMap<>();
+        Set<String> misses = new HashSet<>();
+        for (var cb : callbacks) {
+            var ref = cb.getExternalReferenceId();
+            var cached = inFlightCache.get(ref);
+            if (cached != null) {
+                resolved.put(ref, cached);
+            } else {
+                misses.add(ref);
+            }
+        }
+        if (misses.isEmpty()) {
+            return resolved;
+        }
+
+        var txs = transactionRepository.findByExternalReferenceIdIn(misses);
+        Map<Long, RetryConfiguration> rcByTxId = txs.isEmpty()
+                ? Map.of()
+                : retryConfigurationRepository.findByTransactionIn(txs).stream()
+                        .collect(Collectors.toMap(rc -> rc.getTransaction().getId(), Function.identity()));
+        for (var tx : txs) {
+            resolved.put(tx.getExternalReferenceId(), InFlightTransaction.of(tx, rcByTxId.get(tx.getId())));
+        }
+        return resolved;
+    }
+
+    // a rolled-back batch was never applied, so its redeliveries must not be suppressed
+    private void releaseOnRollback(List<PaymentCallbackRequest> claimed) {
+        if (claimed.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    claimed.forEach(callbackDeduplicator::release);
+                }
+            }
+        });
+    }
+
+    private StatusUpdate applyCallback(InFlightTransaction tx, PaymentCallbackRequest cb, List<ErrorLog> errorLogs) {
         LocalDateTime callbackTime = Instant.ofEpochMilli(cb.getTimestamp())
                 .atZone(ZoneId.systemDefault())
                 .toLocalDateTime();
 
         if ("SUCCESS".equalsIgnoreCase(cb.getStatus())) {
-            tx.setStatus(TransactionStatus.SUCCESS);
-            tx.setCompletedAt(callbackTime);
+            return new StatusUpdate(TransactionStatus.SUCCESS, callbackTime, null);
+        }
 
-        } else {
-            tx.setStatus(TransactionStatus.FAILED);
-
-            ErrorLog log = ErrorLog.builder()
-                    .transaction(tx)
-                    .errorCode(cb.getErrorCode())
-                    .errorMessage(cb.getErrorMessage())
-                    .retryEligible(isRetryEligible(cb.getErrorCode()))
-                    .retryAttempt(
-                            retryConfigurationRepository.findByTransaction(tx)
-                                    .map(RetryConfiguration::getCurrentAttempts).orElse(0)
-                    )
-                    .build();
-            errorLogRepository.save(log);
-
-            if (isRetryEligible(cb.getErrorCode())) {
-                retryConfigurationRepository.findByTransaction(tx).ifPresent(rc -> {
-                    if (rc.getCurrentAttempts() < rc.getMaxRetries()) {
-                        tx.setStatus(TransactionStatus.RETRY_SCHEDULED);
-                        // update nextRetryTime here or leave to scheduler
-                        retryConfigurationRepository.save(rc);
-                    }
-                });
+        boolean retryEligible = isRetryEligible(cb.getErrorCode());
+        errorLogs.add(ErrorLog.builder()
+                .transaction(transactionRepository.getReferenceById(tx.transactionId()))
+                .errorCode(Objects.requireNonNullElse(cb.getErrorCode(), "UNKNOWN_ERROR"))
+                .errorMessage(Objects.requireNonNullElse(cb.getErrorMessage(), ""))
+                .retryEligible(retryEligible)
+                .retryAttempt(tx.attempts())
+                .createdAt(LocalDateTime.now())
+                .build());
+        declineCache.recordDecline(tx.paymentMethodId(), cb.getErrorCode());
+
+        if (retryEligible && tx.hasRetryConfig() && tx.attempts() < tx.maxRetries()) {
+            // enqueued on retry_due once the status change is applied
+            return new StatusUpdate(TransactionStatus.RETRY_SCHEDULED, null, cb.getErrorCode());
+        }
+        return new StatusUpdate(TransactionStatus.FAILED, null, cb.getErrorCode());
+    }
+
+    /**
+     * Applies callback status updates as compare-and-set on the status each transaction was
+     * resolved with. Losers were usually resolved from a stale snapshot (cache or another
+     * node), so their current status is re-read and the update tried once more if the state
+     * machine still allows it; whatever loses again is dropped. Returns, for each applied
+     * update, the status it moved from.
+     */
+    private Map<Long, TransactionStatus> applyStatusUpdates(
+            Map<Long, StatusUpdate> updates, Map<Long, InFlightTransaction> touched) {
+        Map<Long, TransactionStatus> expected = new HashMap<>();
+        updates.keySet().forEach(txId -> expected.put(txId, touched.get(txId).status()));
+
+        Map<Long, TransactionStatus> movedFrom = new HashMap<>();
+        for (int round = 0; round < 2 && !expected.isEmpty(); round++) {
+            if (round > 0) {
+                var losers = new ArrayList<>(expected.keySet());
+                expected.clear();
+                for (Object[] row : transactionRepository.findStatusesByIdIn(losers)) {
+                    expected.put((Long) row[0], (TransactionStatus) row[1]);
+                }
+            }
+            expected.entrySet().removeIf(e -> !e.getValue().canTransitionTo(updates.get(e.getKey()).status()));
+            for (Long txId : compareAndSetStatuses(updates, expected)) {
+                movedFrom.put(txId, expected.remove(txId));
             }
         }
+        return movedFrom;
+    }
 
-        transactionRepository.save(tx);
-        rabbitTemplate.convertAndSend(notificationQueue, tx.getId());
+    private List<Long> compareAndSetStatuses(Map<Long, StatusUpdate> updates, Map<Long, TransactionStatus> expected) {
+        if (expected.isEmpty()) {
+            return List.of();
+        }
+        var ids = new ArrayList<>(expected.keySet());
+        var now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate("""
+                UPDATE transactions
+                   SET status = ?, completed_at = COALESCE(?, completed_at), updated_at = ?, version = version + 1
+                 WHERE id = ? AND status = ?
+                """, ids, ids.size(), (ps, txId) -> {
+            var update = updates.get(txId);
+            ps.setString(1, update.status().name());
+            ps.setTimestamp(2, update.completedAt() != null ? Timestamp.valueOf(update.completedAt()) : null);
+            ps.setTimestamp(3, now);
+            ps.setLong(4, txId);
+            ps.setString(5, expected.get(txId).name());
+        });
+
+        List<Long> applied = new ArrayList<>();
+        int k = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    applied.add(ids.get(k));
+                }
+                k++;
+            }
+        }
+        return applied;
     }
 
     // --- Helper methods below ---
 
+    private void dispatch(Transaction tx, String asyncErrorCode) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                // TODO: replace with real API call
+                simulatePaymentProcessing(tx);
+            } catch (Exception ex) {
+                logger.error("Async payment error for tx {}: {}", tx.getId(), ex.getMessage(), ex);
+                handlePaymentError(tx, asyncErrorCode, ex.getMessage());
+            }
+        });
+    }
+
     private boolean isRetryEligible(String err) {
         return err != null && (err.startsWith("NETWORK_")
                 || err.equals("GATEWAY_TIMEOUT")
@@ -167,33 +448,42 @@ public class PaymentService {
     }
 
     private void handlePaymentError(Transaction tx, String code, String msg) {
-        tx.setStatus(TransactionStatus.FAILED);
-        transactionRepository.save(tx);
+        var rc = retryConfigurationRepository.findByTransaction(tx).orElse(null);
+        // the error is logged either way; the status only moves if nothing else resolved it first
+        var settled = transitions.attemptFailed(tx, rc, isRetryEligible(code));
+        if (settled == null) {
+            logger.info("Not settling failed attempt of tx {}: status changed concurrently", tx.getId());
+        } else if (settled == TransactionStatus.FAILED && rc != null && rc.getCurrentAttempts() >= rc.getMaxRetries()) {
+            deadLetters.park(tx.getId(), code, rc.getCurrentAttempts());
+        }
 
         ErrorLog log = ErrorLog.builder()
                 .transaction(tx)
                 .errorCode(code)
                 .errorMessage(msg)
                 .retryEligible(isRetryEligible(code))
-                .retryAttempt(
-                        retryConfigurationRepository.findByTransaction(tx)
-                                .map(RetryConfiguration::getCurrentAttempts).orElse(0)
-                )
+                .retryAttempt(rc != null ? rc.getCurrentAttempts() : 0)
+                .createdAt(LocalDateTime.now())
                 .build();
-        errorLogRepository.save(log);
+        errorLogWriter.write(log);
+        declineCache.recordDecline(tx.getPaymentMethodId(), code);
+        inFlightCache.evict(tx.getExternalReferenceId());
     }
 
     /** Simulation only—replace with real gateway call. */
     private void simulatePaymentProcessing(Transaction tx) {
         boolean success = Math.random() > 0.3;
         if (success) {
-            tx.setStatus(TransactionStatus.SUCCESS);
-            tx.setCompletedAt(LocalDateTime.now());
+            inFlightCache.evict(tx.getExternalReferenceId());
+            if (!transitions.transition(tx, TransactionStatus.SUCCESS)) {
+                logger.info("Not marking tx {} SUCCESS: status changed concurrently", tx.getId());
+            }
         } else {
             String[] codes = {"NETWORK_ERROR","INSUFFICIENT_FUNDS","GATEWAY_TIMEOUT"};
             String code = codes[(int)(Math.random()*codes.length)];
             handlePaymentError(tx, code, "Simulated " + code);
         }
-        transactionRepository.save(tx);
     }
+
+    private record StatusUpdate(TransactionStatus status, LocalDateTime completedAt, String errorCode) {}
 }
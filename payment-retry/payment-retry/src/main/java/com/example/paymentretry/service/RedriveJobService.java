@@ -0,0 +1,158 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.cache.BoundedCache;
+import com.example.paymentretry.exception.RedriveInProgressException;
+import com.example.paymentretry.exception.ResourceNotFoundException;
+import com.example.paymentretry.model.DeadLetter;
+import com.example.paymentretry.payload.DeadLetterFilter;
+import com.example.paymentretry.payload.RedriveJobStatus;
+import com.example.paymentretry.payload.RedriveJobStatus.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bulk re-drive of dead letters as a background job on a virtual thread. Matches are
+ * streamed in id-ordered chunks and re-driven one at a time, paced so gateway calls never
+ * exceed the job's rate. Only one job runs at a time, so the rate is also the total
+ * re-drive load on the gateway. Progress lives in memory on the node running the job.
+ */
+@Service
+public class RedriveJobService {
+    private static final Logger logger = LoggerFactory.getLogger(RedriveJobService.class);
+
+    private final DeadLetterService deadLetterService;
+    private final TransactionService transactionService;
+    private final BoundedCache<String, Job> jobs;
+    private final AtomicReference<Job> running = new AtomicReference<>();
+
+    @Value("${payment.redrive.rate-per-second:20}")
+    private int defaultRate;
+    @Value("${payment.redrive.max-rate-per-second:200}")
+    private int maxRate;
+    @Value("${payment.redrive.chunk-size:500}")
+    private int chunkSize;
+
+    public RedriveJobService(DeadLetterService deadLetterService,
+                             TransactionService transactionService,
+                             @Value("${payment.redrive.job-retention:86400000}") long jobRetentionMillis) {
+        this.deadLetterService = deadLetterService;
+        this.transactionService = transactionService;
+        this.jobs = new BoundedCache<>(100, jobRetentionMillis);
+    }
+
+    public RedriveJobStatus start(DeadLetterFilter filter) {
+        int rate = Math.min(filter.getRatePerSecond() != null ? filter.getRatePerSecond() : defaultRate, maxRate);
+        var job = new Job(UUID.randomUUID().toString(), filter, rate, deadLetterService.countMatching(filter));
+        if (!running.compareAndSet(null, job)) {
+            throw new RedriveInProgressException("A re-drive job is already running");
+        }
+        jobs.put(job.id, job);
+        logger.info("Starting re-drive job {} for {} dead letters at {}/s", job.id, job.matched, rate);
+        Thread.startVirtualThread(() -> run(job));
+        return job.status();
+    }
+
+    public RedriveJobStatus get(String jobId) {
+        return find(jobId).status();
+    }
+
+    /**
+     * Stops the job before its next item; items already re-driven stay re-driven.
+     */
+    public RedriveJobStatus cancel(String jobId) {
+        var job = find(jobId);
+        job.cancelRequested = true;
+        return job.status();
+    }
+
+    private Job find(String jobId) {
+        var job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("RedriveJob", "id", jobId);
+        }
+        return job;
+    }
+
+    private void run(Job job) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / job.rate;
+        long nextSlot = System.nanoTime();
+        long afterId = 0;
+        try {
+            while (!job.cancelRequested) {
+                List<DeadLetter> chunk = deadLetterService.nextChunk(job.filter, afterId, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                for (var dl : chunk) {
+                    if (job.cancelRequested) {
+                        break;
+                    }
+                    long wait = nextSlot - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    nextSlot = Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+
+                    try {
+                        (transactionService.redriveDeadLetter(dl.getTransactionId()) ? job.redriven : job.skipped).incrementAndGet();
+                    } catch (Exception ex) {
+                        logger.warn("Re-drive of tx {} failed: {}", dl.getTransactionId(), ex.getMessage());
+                        job.failed.incrementAndGet();
+                    }
+                    job.processed.incrementAndGet();
+                    afterId = dl.getId();
+                }
+            }
+            job.finish(job.cancelRequested ? State.CANCELLED : State.COMPLETED);
+        } catch (Exception ex) {
+            logger.error("Re-drive job {} aborted", job.id, ex);
+            job.finish(State.FAILED);
+        } finally {
+            running.compareAndSet(job, null);
+        }
+        logger.info("Re-drive job {} {}: {} re-driven, {} skipped, {} failed",
+                job.id, job.state, job.redriven.get(), job.skipped.get(), job.failed.get());
+    }
+
+    private static final class Job {
+        final String id;
+        final DeadLetterFilter filter;
+        final int rate;
+        final long matched;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong redriven = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile boolean cancelRequested;
+        volatile State state = State.RUNNING;
+        volatile LocalDateTime finishedAt;
+
+        Job(String id, DeadLetterFilter filter, int rate, long matched) {
+            this.id = id;
+            this.filter = filter;
+            this.rate = rate;
+            this.matched = matched;
+        }
+
+        void finish(State end) {
+            finishedAt = LocalDateTime.now();
+            state = end;
+        }
+
+        RedriveJobStatus status() {
+            return new RedriveJobStatus(id, state, rate, matched, processed.get(), redriven.get(),
+                    skipped.get(), failed.get(), startedAt, finishedAt);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.paymentretry.service;
 
+import com.example.paymentretry.cache.InFlightTransactionCache;
+import com.example.paymentretry.cache.TerminalTransactionCache;
 import com.example.paymentretry.exception.ResourceNotFoundException;
 import com.example.paymentretry.model.RetryConfiguration;
 import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.model.TransactionStatus;
 import com.example.paymentretry.payload.RetryConfigRequest;
 import com.example.paymentretry.payload.RetryConfigResponse;
 import com.example.paymentretry.repository.RetryConfigurationRepository;
@@ -22,6 +25,12 @@ public class RetryConfigService {
     private final RetryConfigurationRepository retryConfigurationRepository;
     @Autowired
     private final TransactionRepository transactionRepository;
+    @Autowired
+    private final InFlightTransactionCache inFlightCache;
+    @Autowired
+    private final TerminalTransactionCache terminalCache;
+    @Autowired
+    private final RetryQueue retryQueue;
 
     @Value("${retry.max-attempts}")
     private Integer defaultMaxRetries;
@@ -30,9 +39,12 @@ public class RetryConfigService {
     private Long defaultRetryInterval;
 
     @Autowired
-    public RetryConfigService(RetryConfigurationRepository retryConfigurationRepository, TransactionRepository transactionRepository) {
+    public RetryConfigService(RetryConfigurationRepository retryConfigurationRepository, TransactionRepository transactionRepository, InFlightTransactionCache inFlightCache, TerminalTransactionCache terminalCache, RetryQueue retryQueue) {
         this.retryConfigurationRepository = retryConfigurationRepository;
         this.transactionRepository = transactionRepository;
+        this.inFlightCache = inFlightCache;
+        this.terminalCache = terminalCache;
+        this.retryQueue = retryQueue;
     }
 
     /**
@@ -88,6 +100,15 @@ public class RetryConfigService {
         cfg.setStrategy(req.getStrategy());
 
         cfg = retryConfigurationRepository.save(cfg);
+        // a waiting retry is re-timed under the new settings; one that can no longer run is dropped
+        if (cfg.getCurrentAttempts() >= cfg.getMaxRetries()) {
+            retryQueue.remove(txId);
+        } else if (tx.getStatus() == TransactionStatus.RETRY_SCHEDULED) {
+            retryQueue.schedule(txId, retryQueue.nextDueAt(cfg.getStrategy(), cfg.getRetryInterval(), cfg.getCurrentAttempts()));
+        }
+        // the cached retry snapshots no longer match
+        inFlightCache.evict(tx.getExternalReferenceId());
+        terminalCache.evict(txId);
         logger.info("Transaction retry config saved for tx {}: {} attempts, interval {}",
                 txId, cfg.getMaxRetries(), cfg.getRetryInterval());
 
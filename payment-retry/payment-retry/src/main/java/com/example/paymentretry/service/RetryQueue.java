@@ -0,0 +1,101 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.model.RetryDue;
+import com.example.paymentretry.model.RetryStrategy;
+import com.example.paymentretry.repository.RetryDueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The retry_due table: a transaction is enqueued when a retry is scheduled and removed when
+ * the retry is claimed, the transaction resolves, or its attempts run out. The scheduler
+ * reads only from here. Writes join the caller's transaction when there is one.
+ */
+@Service
+public class RetryQueue {
+    @Autowired
+    private final RetryDueRepository retryDueRepository;
+    @Autowired
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${retry.initial-interval:60000}")
+    private long defaultInterval;
+    @Value("${retry.multiplier:2.0}")
+    private double multiplier;
+    @Value("${retry.max-interval:300000}")
+    private long maxInterval;
+
+    public RetryQueue(RetryDueRepository retryDueRepository, JdbcTemplate jdbcTemplate) {
+        this.retryDueRepository = retryDueRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * When the next attempt is due, given the attempts already spent. EXPONENTIAL grows the
+     * interval by retry.multiplier per attempt, capped at retry.max-interval.
+     */
+    public LocalDateTime nextDueAt(RetryStrategy strategy, Long retryInterval, int attemptsSpent) {
+        long interval = retryInterval != null ? retryInterval : defaultInterval;
+        if (strategy == RetryStrategy.EXPONENTIAL) {
+            interval = (long) Math.min(interval * Math.pow(multiplier, attemptsSpent), maxInterval);
+        }
+        return LocalDateTime.now().plusNanos(interval * 1_000_000L);
+    }
+
+    public void schedule(Long txId, LocalDateTime dueAt) {
+        scheduleAll(Map.of(txId, dueAt));
+    }
+
+    /**
+     * Upserts queue rows and mirrors the due time into retry_configurations.next_retry_time,
+     * which the API still reports.
+     */
+    public void scheduleAll(Map<Long, LocalDateTime> dueAtByTxId) {
+        if (dueAtByTxId.isEmpty()) {
+            return;
+        }
+        var rows = new ArrayList<>(dueAtByTxId.entrySet());
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO retry_due (transaction_id, due_at) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE due_at = VALUES(due_at)
+                """, rows, rows.size(), (ps, e) -> {
+            ps.setLong(1, e.getKey());
+            ps.setTimestamp(2, Timestamp.valueOf(e.getValue()));
+        });
+        // updated_at feeds the transaction ETag, so it moves with next_retry_time
+        var now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("""
+                UPDATE retry_configurations
+                   SET next_retry_time = ?, updated_at = ?, version = version + 1
+                 WHERE transaction_id = ?
+                """, rows, rows.size(), (ps, e) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(e.getValue()));
+            ps.setTimestamp(2, now);
+            ps.setLong(3, e.getKey());
+        });
+    }
+
+    public void remove(Long txId) {
+        removeAll(List.of(txId));
+    }
+
+    public void removeAll(Collection<Long> txIds) {
+        if (!txIds.isEmpty()) {
+            retryDueRepository.deleteAllByIdInBatch(txIds);
+        }
+    }
+
+    public List<RetryDue> due(LocalDateTime now, int limit) {
+        return retryDueRepository.findDue(now, PageRequest.of(0, limit));
+    }
+}
@@ -1,22 +1,28 @@
 package com.example.paymentretry.service;
 
+import com.example.paymentretry.cache.PaymentMethodDeclineCache;
 import com.example.paymentretry.model.RetryConfiguration;
+import com.example.paymentretry.model.RetryDue;
 import com.example.paymentretry.model.Transaction;
 import com.example.paymentretry.model.TransactionStatus;
 import com.example.paymentretry.repository.RetryConfigurationRepository;
 import com.example.paymentretry.repository.TransactionRepository;
-import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class RetrySchedulerService {
@@ -27,15 +33,30 @@ public class RetrySchedulerService {
     private final TransactionRepository transactionRepository;
     @Autowired
     private final PaymentService paymentService;
+    @Autowired
+    private final PaymentMethodDeclineCache declineCache;
+    @Autowired
+    private final TransactionTransitions transitions;
+    @Autowired
+    private final RetryQueue retryQueue;
+    @Autowired
+    private final DeadLetterService deadLetters;
+
+    @Value("${retry.scheduler.batch-size:500}")
+    private int batchSize;
 
     // Track in-progress retries to avoid duplicates
     private final ConcurrentHashMap<Long, Boolean> inProgress = new ConcurrentHashMap<>();
     private final AtomicInteger activeCount = new AtomicInteger(0);
 
-    public RetrySchedulerService(RetryConfigurationRepository retryConfigurationRepository, TransactionRepository transactionRepository, PaymentService paymentService) {
+    public RetrySchedulerService(RetryConfigurationRepository retryConfigurationRepository, TransactionRepository transactionRepository, PaymentService paymentService, PaymentMethodDeclineCache declineCache, TransactionTransitions transitions, RetryQueue retryQueue, DeadLetterService deadLetters) {
         this.retryConfigurationRepository = retryConfigurationRepository;
         this.transactionRepository = transactionRepository;
         this.paymentService = paymentService;
+        this.declineCache = declineCache;
+        this.transitions = transitions;
+        this.retryQueue = retryQueue;
+        this.deadLetters = deadLetters;
     }
 
     /**
@@ -45,16 +66,23 @@ public class RetrySchedulerService {
     public void processScheduledRetries() {
         logger.info("Scheduled retry job started. Active retries: {}", activeCount.get());
 
-        var statuses = List.of(
-                TransactionStatus.RETRY_SCHEDULED,
-                TransactionStatus.FAILED
-        );
-        List<RetryConfiguration> pending = retryConfigurationRepository
-                .findEligiblePendingRetries(LocalDateTime.now(), statuses);
-        logger.info("Found {} eligible retries", pending.size());
+        // only retry_due is scanned; configs are then loaded by primary key for the due batch
+        List<Long> dueTxIds = retryQueue.due(LocalDateTime.now(), batchSize).stream()
+                .map(RetryDue::getTransactionId)
+                .toList();
+        Map<Long, RetryConfiguration> cfgByTxId = dueTxIds.isEmpty()
+                ? Map.of()
+                : retryConfigurationRepository.findWithTransactionByTransactionIdIn(dueTxIds).stream()
+                        .collect(Collectors.toMap(rc -> rc.getTransaction().getId(), Function.identity()));
+        logger.info("Found {} due retries", dueTxIds.size());
 
-        for (var cfg : pending) {
-            Long txId = cfg.getTransaction().getId();
+        List<Long> stale = new ArrayList<>();
+        for (Long txId : dueTxIds) {
+            var cfg = cfgByTxId.get(txId);
+            if (cfg == null || !isActionable(cfg)) {
+                stale.add(txId);
+                continue;
+            }
             if (inProgress.putIfAbsent(txId, Boolean.TRUE) != null) {
                 logger.debug("Skipping tx {} as it's already in progress", txId);
                 continue;
@@ -72,28 +100,52 @@ public class RetrySchedulerService {
                 }
             });
         }
+        // rows left behind by a writer that resolved the transaction without dequeuing it
+        retryQueue.removeAll(stale);
         logger.info("Scheduled retry job dispatched. Active retries: {}", activeCount.get());
     }
 
-    @Transactional
+    private boolean isActionable(RetryConfiguration cfg) {
+        var status = cfg.getTransaction().getStatus();
+        return (status == TransactionStatus.RETRY_SCHEDULED || status == TransactionStatus.FAILED)
+                && cfg.getCurrentAttempts() < cfg.getMaxRetries();
+    }
+
+    /**
+     * Not transactional as a whole: the claim is a compare-and-set, so another scheduler
+     * thread or node, a callback or a manual retry that moves the transaction first simply
+     * makes this one drop out.
+     */
     protected void handleRetry(RetryConfiguration cfg) {
         Transaction tx = cfg.getTransaction();
         logger.info("Processing retry for tx {} (attempt {}/{})",
                 tx.getId(), cfg.getCurrentAttempts()+1, cfg.getMaxRetries());
 
-        tx.setStatus(TransactionStatus.RETRY_IN_PROGRESS);
-        transactionRepository.save(tx);
+        // A recent hard decline on the same payment method means this attempt is doomed;
+        // push it past the decline window without spending an attempt or a gateway call.
+        var declinedUntil = declineCache.declinedUntil(tx.getPaymentMethodId());
+        if (declinedUntil.isPresent()) {
+            logger.info("Deferring retry for tx {}: payment method {} hard-declined, next try after {}",
+                    tx.getId(), tx.getPaymentMethodId(), declinedUntil.get());
+            retryQueue.schedule(tx.getId(), declinedUntil.get());
+            return;
+        }
 
-        cfg.setCurrentAttempts(cfg.getCurrentAttempts() + 1);
-        retryConfigurationRepository.save(cfg);
+        if (!transitions.claimRetry(tx, cfg)) {
+            logger.info("Skipping retry for tx {}: claimed or changed by another writer", tx.getId());
+            return;
+        }
 
         try {
             paymentService.retryPayment(tx);
             logger.info("Retry sent for tx {}", tx.getId());
         } catch (Exception ex) {
             logger.error("Retry failed for tx {}", tx.getId(), ex);
-            tx.setStatus(TransactionStatus.FAILED);
-            transactionRepository.save(tx);
+            // a dispatch failure is ours, not the gateway's: requeue while attempts remain
+            if (transitions.attemptFailed(tx, cfg, true) == TransactionStatus.FAILED
+                    && cfg.getCurrentAttempts() >= cfg.getMaxRetries()) {
+                deadLetters.park(tx.getId(), "RETRY_DISPATCH_ERROR", cfg.getCurrentAttempts());
+            }
         }
     }
 }
@@ -2,10 +2,10 @@ package com.example.paymentretry.service;
 
 import com.example.paymentretry.payload.CustomApiResponse;
 import com.example.paymentretry.payload.TransactionSummary;
-import com.example.paymentretry.repository.ErrorLogRepository;
+import com.example.paymentretry.repository.CreatedAtRange;
 import com.example.paymentretry.repository.RetryConfigurationRepository;
 import com.example.paymentretry.repository.TransactionRepository;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,7 +21,6 @@ import org.springframework.security.core.GrantedAuthority;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,22 +32,26 @@ public class TransactionAnalyticsService {
     @Autowired
     private final TransactionRepository transactionRepository;
     @Autowired
-    private final ErrorLogRepository errorLogRepository;
-    @Autowired
     private final RetryConfigurationRepository retryConfigurationRepository;
+    @Autowired
+    private final AnalyticsRollupService rollups;
+    @Autowired
+    private final LiveStatusCounters liveCounts;
 
     public TransactionAnalyticsService(TransactionRepository transactionRepository,
-                                       ErrorLogRepository errorLogRepository,
-                                       RetryConfigurationRepository retryConfigurationRepository) {
+                                       RetryConfigurationRepository retryConfigurationRepository,
+                                       AnalyticsRollupService rollups,
+                                       LiveStatusCounters liveCounts) {
         this.transactionRepository = transactionRepository;
-        this.errorLogRepository = errorLogRepository;
         this.retryConfigurationRepository = retryConfigurationRepository;
+        this.rollups = rollups;
+        this.liveCounts = liveCounts;
     }
 
     /**
      * Fetch transaction trend for the last X days (ADMIN only).
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<CustomApiResponse<List<Map<String, Object>>>> getTransactionTrendForLastDays(int days) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) {
@@ -63,8 +66,8 @@ public class TransactionAnalyticsService {
                     .body(CustomApiResponse.error(HttpStatus.FORBIDDEN, "Access denied", false));
         }
         try {
-            LocalDateTime start = LocalDate.now().minusDays(days).atStartOfDay();
-            List<Object[]> raw = transactionRepository.getTransactionTrend(start);
+            var range = CreatedAtRange.ofDays(LocalDate.now().minusDays(days), LocalDate.now());
+            List<Object[]> raw = rollups.trend(range.from(), range.to());
             List<Map<String, Object>> trend = raw.stream().map(row -> {
                 Map<String, Object> data = new HashMap<>();
                 data.put("date", row[0].toString());
@@ -86,7 +89,7 @@ public class TransactionAnalyticsService {
     /**
      * Fetch retry success rate (ADMIN only).
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<CustomApiResponse<Double>> getRetrySuccessRate() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) {
@@ -101,7 +104,7 @@ public class TransactionAnalyticsService {
                     .body(CustomApiResponse.error(HttpStatus.FORBIDDEN, "Access denied", false));
         }
         try {
-            Double rate = transactionRepository.getRetrySuccessRate();
+            Double rate = rollups.retrySuccessRate();
             double result = rate != null ? BigDecimal.valueOf(rate)
                     .setScale(2, RoundingMode.HALF_UP).doubleValue() : 0.0;
             return ResponseEntity.ok(
@@ -114,10 +117,35 @@ public class TransactionAnalyticsService {
         }
     }
 
+    /**
+     * Current transaction counts by status, overall and per gateway, from the in-memory
+     * counters (ADMIN only).
+     */
+    public ResponseEntity<CustomApiResponse<Map<String, Object>>> getLiveStatusCounts() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(CustomApiResponse.error(HttpStatus.UNAUTHORIZED, "Unauthenticated", false));
+        }
+        boolean isAdmin = auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> role.equals("ROLE_ADMIN"));
+        if (!isAdmin) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(CustomApiResponse.error(HttpStatus.FORBIDDEN, "Access denied", false));
+        }
+        Map<String, Object> counts = new HashMap<>();
+        counts.put("byStatus", liveCounts.byStatus());
+        counts.put("byGateway", liveCounts.byGateway());
+        return ResponseEntity.ok(
+                CustomApiResponse.success(counts, "Live status counts fetched", true)
+        );
+    }
+
     /**
      * Fetch most common error codes (ADMIN only).
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<CustomApiResponse<List<Map<String, Object>>>> getMostCommonErrorCodes(int limit) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) {
@@ -132,8 +160,7 @@ public class TransactionAnalyticsService {
                     .body(CustomApiResponse.error(HttpStatus.FORBIDDEN, "Access denied", false));
         }
         try {
-            var page = PageRequest.of(0, limit);
-            List<Object[]> rows = errorLogRepository.findMostCommonErrorCodes(page);
+            List<Object[]> rows = rollups.mostCommonErrorCodes(limit);
             List<Map<String, Object>> common = rows.stream().map(r -> {
                 Map<String, Object> m = new HashMap<>();
                 m.put("errorCode", r[0]);
@@ -153,7 +180,7 @@ public class TransactionAnalyticsService {
     /**
      * Fetch transaction summaries for user (USER or ADMIN).
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<CustomApiResponse<List<TransactionSummary>>> getTransactionSummariesForUser(
             Long userId, int limit) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -198,7 +225,7 @@ public class TransactionAnalyticsService {
                     .body(CustomApiResponse.error(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to fetch transaction summaries", false));
         }
     }
-    @Transactional
+    @Transactional(readOnly = true)
     public ResponseEntity<CustomApiResponse<Double>> getAverageAttemptsForSuccess() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) {
@@ -213,7 +240,7 @@ public class TransactionAnalyticsService {
                     .body(CustomApiResponse.error(HttpStatus.FORBIDDEN, "Access denied", false));
         }
         try {
-            Double avg = retryConfigurationRepository.getAverageAttemptsForSuccessfulTransactions();
+            Double avg = rollups.averageAttemptsForSuccess();
             double result = avg != null ? BigDecimal.valueOf(avg)
                     .setScale(2, RoundingMode.HALF_UP)
                     .doubleValue() : 0.0;
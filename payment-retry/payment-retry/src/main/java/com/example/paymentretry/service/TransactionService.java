@@ -1,29 +1,42 @@
 package com.example.paymentretry.service;
 
+import com.example.paymentretry.cache.TerminalTransactionCache;
+import com.example.paymentretry.event.TransactionEventPublisher;
 import com.example.paymentretry.exception.ResourceNotFoundException;
 import com.example.paymentretry.exception.UnauthorisedAccess;
+import com.example.paymentretry.model.PaymentMethod;
 import com.example.paymentretry.model.RetryConfiguration;
 import com.example.paymentretry.model.RetryStrategy;
 import com.example.paymentretry.model.Transaction;
 import com.example.paymentretry.model.TransactionStatus;
 import com.example.paymentretry.payload.*;
+import com.example.paymentretry.repository.CreatedAtRange;
 import com.example.paymentretry.repository.PaymentMethodRepository;
 import com.example.paymentretry.repository.RetryConfigurationRepository;
 import com.example.paymentretry.repository.TransactionRepository;
 import com.example.paymentretry.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +52,16 @@ public class TransactionService {
     private final RetryConfigurationRepository retryConfigurationRepository;
     @Autowired
     private final PaymentService paymentService;
+    @Autowired
+    private final StreamingExporter streamingExporter;
+    @Autowired
+    private final TransactionEventPublisher transactionEvents;
+    @Autowired
+    private final TerminalTransactionCache terminalCache;
+    @Autowired
+    private final TransactionTransitions transitions;
+    @Autowired
+    private final DeadLetterService deadLetterService;
 
     @Value("${retry.max-attempts}")
     private Integer defaultMaxRetries;
@@ -46,12 +69,17 @@ public class TransactionService {
     private Long defaultRetryInterval;
 
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository, PaymentMethodRepository paymentMethodRepository, RetryConfigurationRepository retryConfigurationRepository, PaymentService paymentService) {
+    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository, PaymentMethodRepository paymentMethodRepository, RetryConfigurationRepository retryConfigurationRepository, PaymentService paymentService, StreamingExporter streamingExporter, TransactionEventPublisher transactionEvents, TerminalTransactionCache terminalCache, TransactionTransitions transitions, DeadLetterService deadLetterService) {
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
         this.paymentMethodRepository = paymentMethodRepository;
         this.retryConfigurationRepository = retryConfigurationRepository;
         this.paymentService = paymentService;
+        this.streamingExporter = streamingExporter;
+        this.transactionEvents = transactionEvents;
+        this.terminalCache = terminalCache;
+        this.transitions = transitions;
+        this.deadLetterService = deadLetterService;
     }
 
     @Transactional
@@ -74,62 +102,213 @@ public class TransactionService {
                 .paymentMethodId(pm.getId())
                 .build();
         tx = transactionRepository.save(tx);
+        transactionEvents.statusChanged(tx, null);
 
+        RetryConfiguration rc = null;
         if (req.getAllowRetry()) {
-            var rc = RetryConfiguration.builder()
+            rc = RetryConfiguration.builder()
                     .transaction(tx)
                     .maxRetries(defaultMaxRetries)
                     .retryInterval(defaultRetryInterval)
                     .strategy(RetryStrategy.EXPONENTIAL)
                     .currentAttempts(0)
                     .build();
-            retryConfigurationRepository.save(rc);
+            rc = retryConfigurationRepository.save(rc);
         }
 
-        paymentService.initiatePayment(tx);
+        paymentService.initiatePayment(tx, rc);
         return mapToResponse(tx);
     }
 
+    /**
+     * Bulk variant of {@link #createTransaction} for merchant integrations.
+     * Ownership of every referenced payment method is checked with one query, transactions and
+     * retry configurations are flushed as JDBC batch inserts (ids come from the pooled generator),
+     * and gateway dispatch is handed to the async pipeline after commit. Returns one result per request, in input order.
+     */
     @Transactional
-    public PagedResponse<TransactionResponse> getUserTransactions(
-            Long userId, String status, int page, int size) {
+    public List<BatchItemResult<TransactionResponse>> createTransactions(Long userId, List<TransactionRequest> reqs) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
+        }
+        var user = userRepository.getReferenceById(userId);
+
+        Set<Long> pmIds = reqs.stream().map(TransactionRequest::getPaymentMethodId).collect(Collectors.toSet());
+        Map<Long, PaymentMethod> pms = paymentMethodRepository.findAllById(pmIds).stream()
+                .collect(Collectors.toMap(PaymentMethod::getId, Function.identity()));
+
+        List<BatchItemResult<TransactionResponse>> results = new ArrayList<>(Collections.nCopies(reqs.size(), null));
+        List<Integer> accepted = new ArrayList<>();
+        List<Transaction> txs = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < reqs.size(); i++) {
+            var req = reqs.get(i);
+            var pm = pms.get(req.getPaymentMethodId());
+            if (pm == null) {
+                results.set(i, BatchItemResult.failed(i, "NOT_FOUND",
+                        "PaymentMethod not found with id : '" + req.getPaymentMethodId() + "'"));
+            } else if (!pm.getUser().getId().equals(userId)) {
+                results.set(i, BatchItemResult.failed(i, "FORBIDDEN", "Cannot use payment method you do not own"));
+            } else {
+                accepted.add(i);
+                txs.add(Transaction.builder()
+                        .user(user)
+                        .amount(req.getAmount())
+                        .currency(req.getCurrency())
+                        .status(TransactionStatus.PENDING)
+                        .gateway("DEFAULT_GATEWAY")
+                        .externalReferenceId(UUID.randomUUID().toString())
+                        .paymentMethodId(pm.getId())
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build());
+            }
+        }
+        if (txs.isEmpty()) {
+            return results;
+        }
 
-        var user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User","id",userId));
+        transactionRepository.saveAll(txs);
+        txs.forEach(tx -> transactionEvents.statusChanged(tx, null));
+
+        List<RetryConfiguration> rcs = new ArrayList<>();
+        for (int j = 0; j < txs.size(); j++) {
+            if (Boolean.TRUE.equals(reqs.get(accepted.get(j)).getAllowRetry())) {
+                var rc = RetryConfiguration.builder()
+                        .transaction(txs.get(j))
+                        .maxRetries(defaultMaxRetries)
+                        .retryInterval(defaultRetryInterval)
+                        .strategy(RetryStrategy.EXPONENTIAL)
+                        .currentAttempts(0)
+                        .build();
+                rc.setCreatedAt(now);
+                rc.setUpdatedAt(now);
+                rcs.add(rc);
+            }
+        }
+        retryConfigurationRepository.saveAll(rcs);
+        Map<Long, RetryConfiguration> rcByTxId = rcs.stream()
+                .collect(Collectors.toMap(rc -> rc.getTransaction().getId(), Function.identity()));
+
+        for (int j = 0; j < txs.size(); j++) {
+            var tx = txs.get(j);
+            int i = accepted.get(j);
+            results.set(i, BatchItemResult.ok(i, "CREATED",
+                    mapToResponse(tx, pms.get(tx.getPaymentMethodId()), rcByTxId.get(tx.getId()))));
+        }
 
-        Pageable pg = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Transaction> p;
+        paymentService.dispatchPayments(txs, rcByTxId);
+        return results;
+    }
 
-        if (status != null && !status.isBlank()) {
-            try {
-                var st = TransactionStatus.valueOf(status.toUpperCase());
-                p = transactionRepository.findByUserAndStatus(user, st, pg);
-            } catch (IllegalArgumentException ex) {
-                p = transactionRepository.findByUser(user, pg);
-            }
-        } else {
-            p = transactionRepository.findByUser(user, pg);
+    /**
+     * Terminal transactions are served from {@link TerminalTransactionCache}; deliberately not
+     * transactional so a cache hit does not check out a connection.
+     */
+    public TransactionResponse getTransactionById(Long userId, Long txId) {
+        return getOwnedTransaction(userId, txId).response();
+    }
+
+    /**
+     * The response together with the ETag of the rows it was built from, so the tag always
+     * matches the body it is sent with.
+     */
+    public TerminalTransactionCache.Owned getOwnedTransaction(Long userId, Long txId) {
+        var owned = terminalCache.get(txId, () -> {
+            var tx = transactionRepository.findById(txId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Transaction","id",txId));
+            PaymentMethod pm = tx.getPaymentMethodId() != null
+                    ? paymentMethodRepository.findById(tx.getPaymentMethodId()).orElse(null)
+                    : null;
+            RetryConfiguration rc = retryConfigurationRepository.findByTransaction(tx).orElse(null);
+            return new TerminalTransactionCache.Owned(tx.getUser().getId(), mapToResponse(tx, pm, rc),
+                    ETags.of("tx-" + txId, tx.getUpdatedAt(),
+                            pm != null ? pm.getUpdatedAt() : null, rc != null ? rc.getUpdatedAt() : null));
+        });
+        return checkOwner(owned, userId);
+    }
+
+    /**
+     * The terminal-cache entry for {@code txId} if there is one, owner checked; null on a miss.
+     */
+    public TerminalTransactionCache.Owned getCachedTransaction(Long userId, Long txId) {
+        var owned = terminalCache.peek(txId);
+        return owned != null ? checkOwner(owned, userId) : null;
+    }
+
+    private static TerminalTransactionCache.Owned checkOwner(TerminalTransactionCache.Owned owned, Long userId) {
+        if (!owned.ownerId().equals(userId)) {
+            throw new UnauthorisedAccess("Cannot view transaction you do not own");
         }
+        return owned;
+    }
 
-        var list = p.getContent().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    /**
+     * Strong ETag for GET /transactions/{id} on a cache miss, computed from the updatedAt of
+     * the transaction, its payment method and retry config. Enforces the same 404/403 as the
+     * full read.
+     */
+    public String getTransactionETag(Long userId, Long txId) {
+        List<Object[]> rows = transactionRepository.findVersionById(txId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Transaction","id",txId);
+        }
+        Object[] row = rows.get(0);
+        if (!userId.equals(row[0])) {
+            throw new UnauthorisedAccess("Cannot view transaction you do not own");
+        }
+        return ETags.of("tx-" + txId, row[1], row[2], row[3]);
+    }
 
+    @Transactional(readOnly = true)
+    public VersionedPage getUserTransactionVersions(Long userId, String status, int page, int size) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
+        }
+        return versionedPage("txs-" + userId, userId, parseStatus(status), page, size);
+    }
+
+    @Transactional(readOnly = true)
+    public VersionedPage getAllTransactionVersions(String status, Long userId, int page, int size) {
+        if (userId != null && !userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
+        }
+        return versionedPage("txs-all", userId, parseStatus(status), page, size);
+    }
+
+    // total is part of the tag so inserts/deletes that shift pages also change it
+    private VersionedPage versionedPage(String prefix, Long userId, TransactionStatus status, int page, int size) {
+        Page<Object[]> p = transactionRepository.findVersions(userId, status, PageRequest.of(page, size));
+        return new VersionedPage(
+                ETags.ofRows(prefix, p.getContent(), p.getNumber(), p.getSize(), p.getTotalElements()), p);
+    }
+
+    /**
+     * Bodies for a page of versions, loaded by primary key in the page's order, so a 200
+     * costs no second page or count query.
+     */
+    @Transactional(readOnly = true)
+    public PagedResponse<TransactionResponse> getTransactionPage(VersionedPage versions) {
+        Page<Object[]> p = versions.versions();
+        List<Long> ids = p.getContent().stream().map(row -> (Long) row[0]).toList();
+        Map<Long, TransactionResponse> byId = ids.isEmpty()
+                ? Map.of()
+                : transactionRepository.findResponsesByIdIn(ids).stream()
+                        .collect(Collectors.toMap(TransactionResponse::getId, Function.identity()));
+        List<TransactionResponse> content = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
         return new PagedResponse<>(
-                list, p.getNumber(), p.getSize(),
+                content, p.getNumber(), p.getSize(),
                 p.getTotalElements(), p.getTotalPages(), p.isLast()
         );
     }
 
-    @Transactional
-    public TransactionResponse getTransactionById(Long userId, Long txId) {
-        var tx = transactionRepository.findById(txId)
-                .orElseThrow(() -> new ResourceNotFoundException("Transaction","id",txId));
-        if (!tx.getUser().getId().equals(userId)) {
-            throw new UnauthorisedAccess("Cannot view transaction you do not own");
-        }
-        return mapToResponse(tx);
-    }
+    /**
+     * One page of transaction versions and the list ETag computed from it.
+     */
+    public record VersionedPage(String etag, Page<Object[]> versions) {}
 
     @Transactional
     public void manualRetry(Long userId, Long txId) {
@@ -148,80 +327,147 @@ public class TransactionService {
             throw new IllegalStateException("Max retry attempts reached");
         }
 
-        tx.setStatus(TransactionStatus.RETRY_SCHEDULED);
-        transactionRepository.save(tx);
-
         rc.setNextRetryTime(LocalDateTime.now());
         retryConfigurationRepository.save(rc);
 
+        if (!transitions.transition(tx, TransactionStatus.RETRY_SCHEDULED)) {
+            throw new OptimisticLockingFailureException("Transaction " + txId + " changed while scheduling its retry");
+        }
         paymentService.retryPayment(tx);
     }
 
+    /**
+     * Re-drives one dead-lettered transaction: fresh retry budget, FAILED -> RETRY_SCHEDULED,
+     * then an immediate gateway retry, sent once the reset budget has committed so a fast
+     * failure is settled against it rather than the spent one. Returns false, dropping the stale dead letter, when the
+     * transaction is no longer FAILED with a retry config; also false if another writer moves
+     * it first. The status event evicts the terminal read cache entry on commit.
+     */
     @Transactional
-    public PagedResponse<TransactionResponse> getAllTransactions(
-            String status, Long userId, int page, int size) {
-
-        Pageable pg = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Transaction> p;
-
-        if (status != null && !status.isBlank() && userId != null) {
-            var user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User","id",userId));
-            try {
-                var st = TransactionStatus.valueOf(status.toUpperCase());
-                p = transactionRepository.findByUserAndStatus(user, st, pg);
-            } catch (IllegalArgumentException ex) {
-                p = transactionRepository.findByUser(user, pg);
-            }
+    public boolean redriveDeadLetter(Long txId) {
+        var tx = transactionRepository.findById(txId).orElse(null);
+        if (tx == null || tx.getStatus() != TransactionStatus.FAILED
+                || retryConfigurationRepository.findByTransactionId(txId).isEmpty()) {
+            deadLetterService.remove(txId);
+            return false;
+        }
 
-        } else if (status != null && !status.isBlank()) {
-            try {
-                var st = TransactionStatus.valueOf(status.toUpperCase());
-                p = transactionRepository.findByStatus(st, pg);
-            } catch (IllegalArgumentException ex) {
-                p = transactionRepository.findAll(pg);
-            }
+        retryConfigurationRepository.resetAttempts(txId, LocalDateTime.now());
+        if (!transitions.transition(tx, TransactionStatus.RETRY_SCHEDULED)) {
+            // keep the old budget on a transaction someone else just moved
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+        deadLetterService.remove(txId);
+        paymentService.retryPayment(tx);
+        return true;
+    }
 
-        } else if (userId != null) {
-            var user = userRepository.findById(userId)
-                    .orElseThrow(() -> new ResourceNotFoundException("User","id",userId));
-            p = transactionRepository.findByUser(user, pg);
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<TransactionResponse> getUserTransactionsByCursor(
+            Long userId, String status, String cursor, int size, boolean includeTotal) {
 
-        } else {
-            p = transactionRepository.findAll(pg);
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
         }
+        return seekTransactions(userId, parseStatus(status), cursor, size, includeTotal);
+    }
 
-        var list = p.getContent().stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<TransactionResponse> getAllTransactionsByCursor(
+            String status, Long userId, String cursor, int size, boolean includeTotal) {
 
-        return new PagedResponse<>(
-                list, p.getNumber(), p.getSize(),
-                p.getTotalElements(), p.getTotalPages(), p.isLast()
-        );
+        if (userId != null && !userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
+        }
+        return seekTransactions(userId, parseStatus(status), cursor, size, includeTotal);
+    }
+
+    private CursorPagedResponse<TransactionResponse> seekTransactions(
+            Long userId, TransactionStatus status, String cursor, int size, boolean includeTotal) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be >= 1");
+        }
+        PageCursor after = PageCursor.decode(cursor);
+        List<TransactionResponse> rows = transactionRepository.findResponsesAfter(
+                userId, status,
+                after != null ? after.getCreatedAt() : CreatedAtRange.MAX,
+                after != null ? after.getId() : Long.MAX_VALUE,
+                PageRequest.of(0, size + 1));
+        Long total = includeTotal ? transactionRepository.countFiltered(userId, status) : null;
+        return CursorPagedResponse.of(rows, size, r -> new PageCursor(r.getCreatedAt(), r.getId()), total);
+    }
+
+    /**
+     * Streams every transaction matching the {@link #getAllTransactionVersions} filters, newest first.
+     * Filters are checked up front so a bad user id still fails with 404 before any bytes are sent.
+     */
+    public StreamingResponseBody exportTransactions(String status, Long userId, ExportFormat format, boolean gzip) {
+        if (userId != null && !userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User","id",userId);
+        }
+        TransactionStatus st = parseStatus(status);
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT t.id, t.user_id, t.amount, t.currency, t.status, t.gateway, t.external_reference_id,
+                       t.payment_method_id, rc.current_attempts, rc.max_retries,
+                       t.created_at, t.updated_at, t.completed_at
+                  FROM transactions t
+                  LEFT JOIN retry_configurations rc ON rc.transaction_id = t.id
+                 WHERE 1 = 1
+                """);
+        List<Object> args = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" AND t.user_id = ?");
+            args.add(userId);
+        }
+        if (st != null) {
+            sql.append(" AND t.status = ?");
+            args.add(st.name());
+        }
+        sql.append(" ORDER BY t.created_at DESC, t.id DESC");
+
+        return streamingExporter.stream("transactions", sql.toString(), args, List.of(
+                "id", "userId", "amount", "currency", "status", "gateway", "externalReferenceId",
+                "paymentMethodId", "currentAttempts", "maxRetries", "createdAt", "updatedAt", "completedAt"
+        ), format, gzip);
+    }
+
+    /** Unknown or blank status filters are ignored rather than rejected. */
+    private TransactionStatus parseStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return TransactionStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
     }
 
     private TransactionResponse mapToResponse(Transaction tx) {
         // PaymentMethodResponse and RetryConfigResponse can be null
+        PaymentMethod pm = tx.getPaymentMethodId() != null
+                ? paymentMethodRepository.findById(tx.getPaymentMethodId()).orElse(null)
+                : null;
+        RetryConfiguration rc = retryConfigurationRepository.findByTransaction(tx).orElse(null);
+        return mapToResponse(tx, pm, rc);
+    }
+
+    private TransactionResponse mapToResponse(Transaction tx, PaymentMethod pm, RetryConfiguration rc) {
         PaymentMethodResponse pmResp = null;
-        if (tx.getPaymentMethodId() != null) {
-            var opt = paymentMethodRepository.findById(tx.getPaymentMethodId());
-            if (opt.isPresent()) {
-                var pm = opt.get();
-                pmResp = PaymentMethodResponse.builder()
-                        .id(pm.getId())
-                        .methodName(pm.getMethodName())
-                        .details(pm.getDetails())
-                        .priority(pm.getPriority())
-                        .isDefault(pm.getDefault())
-                        .build();
-            }
+        if (pm != null) {
+            pmResp = PaymentMethodResponse.builder()
+                    .id(pm.getId())
+                    .methodName(pm.getMethodName())
+                    .details(pm.getDetails())
+                    .priority(pm.getPriority())
+                    .isDefault(pm.getDefault())
+                    .build();
         }
 
         RetryConfigResponse rcResp = null;
-        var orc = retryConfigurationRepository.findByTransaction(tx);
-        if (orc.isPresent()) {
-            var rc = orc.get();
+        if (rc != null) {
             rcResp = RetryConfigResponse.builder()
                     .id(rc.getId())
                     .maxRetries(rc.getMaxRetries())
@@ -0,0 +1,133 @@
+package com.example.paymentretry.service;
+
+import com.example.paymentretry.event.TransactionEventPublisher;
+import com.example.paymentretry.model.RetryConfiguration;
+import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.model.TransactionStatus;
+import com.example.paymentretry.repository.RetryConfigurationRepository;
+import com.example.paymentretry.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.LocalDateTime;
+
+/**
+ * Status changes for a single transaction, done as conditional updates on the status the
+ * caller last saw rather than load-modify-save. A writer that loses the race gets false
+ * back and drops its change; nothing is locked. Moves not allowed by
+ * {@link TransactionStatus#successors()} are refused the same way.
+ */
+@Service
+public class TransactionTransitions {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionTransitions.class);
+    @Autowired
+    private final TransactionRepository transactionRepository;
+    @Autowired
+    private final RetryConfigurationRepository retryConfigurationRepository;
+    @Autowired
+    private final TransactionEventPublisher transactionEvents;
+    @Autowired
+    private final RetryQueue retryQueue;
+    @Autowired
+    private final DeadLetterService deadLetters;
+
+    public TransactionTransitions(TransactionRepository transactionRepository, RetryConfigurationRepository retryConfigurationRepository, TransactionEventPublisher transactionEvents, RetryQueue retryQueue, DeadLetterService deadLetters) {
+        this.transactionRepository = transactionRepository;
+        this.retryConfigurationRepository = retryConfigurationRepository;
+        this.transactionEvents = transactionEvents;
+        this.retryQueue = retryQueue;
+        this.deadLetters = deadLetters;
+    }
+
+    /**
+     * Moves {@code tx} from its in-memory status to {@code to}. On success the in-memory copy
+     * is updated and a status event is published; SUCCESS also stamps completedAt.
+     */
+    @Transactional
+    public boolean transition(Transaction tx, TransactionStatus to) {
+        var from = tx.getStatus();
+        if (!from.canTransitionTo(to)) {
+            logger.debug("Refusing transition of tx {} from {} to {}", tx.getId(), from, to);
+            return false;
+        }
+        var now = LocalDateTime.now();
+        var completedAt = to == TransactionStatus.SUCCESS ? now : null;
+        if (transactionRepository.compareAndSetStatus(tx.getId(), from, to, completedAt, now) == 0) {
+            logger.debug("Lost transition of tx {} from {} to {} to a concurrent writer", tx.getId(), from, to);
+            return false;
+        }
+        applied(tx, from, to, completedAt, now);
+        return true;
+    }
+
+    /**
+     * Settles a failed gateway attempt: back to RETRY_SCHEDULED and onto retry_due while the
+     * error is retryable and attempts remain, FAILED otherwise. Returns the status applied,
+     * or null if another writer moved the transaction first.
+     */
+    @Transactional
+    public TransactionStatus attemptFailed(Transaction tx, RetryConfiguration cfg, boolean retryable) {
+        if (retryable && cfg != null && cfg.getCurrentAttempts() < cfg.getMaxRetries()) {
+            if (!transition(tx, TransactionStatus.RETRY_SCHEDULED)) {
+                return null;
+            }
+            retryQueue.schedule(tx.getId(),
+                    retryQueue.nextDueAt(cfg.getStrategy(), cfg.getRetryInterval(), cfg.getCurrentAttempts()));
+            return TransactionStatus.RETRY_SCHEDULED;
+        }
+        return transition(tx, TransactionStatus.FAILED) ? TransactionStatus.FAILED : null;
+    }
+
+    /**
+     * Claims a due retry: spends one attempt (only while attempts remain), moves the
+     * transaction to RETRY_IN_PROGRESS and takes it off retry_due, all or nothing. False
+     * means another scheduler thread or node, a callback or a manual retry got there first,
+     * or the attempts ran out; the queue row is then dropped and the transaction moved to
+     * FAILED and dead-lettered, so it can be re-driven.
+     */
+    @Transactional
+    public boolean claimRetry(Transaction tx, RetryConfiguration cfg) {
+        var from = tx.getStatus();
+        if (!from.canTransitionTo(TransactionStatus.RETRY_IN_PROGRESS)) {
+            return false;
+        }
+        var now = LocalDateTime.now();
+        if (retryConfigurationRepository.incrementAttempts(cfg.getId(), now) == 0) {
+            retryQueue.remove(tx.getId());
+            if (from == TransactionStatus.FAILED || transition(tx, TransactionStatus.FAILED)) {
+                deadLetters.park(tx.getId(), "RETRY_EXHAUSTED", cfg.getMaxRetries());
+            }
+            return false;
+        }
+        if (transactionRepository.compareAndSetStatus(
+                tx.getId(), from, TransactionStatus.RETRY_IN_PROGRESS, null, now) == 0) {
+            // give the attempt back
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+        retryQueue.remove(tx.getId());
+        cfg.setCurrentAttempts(cfg.getCurrentAttempts() + 1);
+        if (cfg.getVersion() != null) {
+            cfg.setVersion(cfg.getVersion() + 1);
+        }
+        applied(tx, from, TransactionStatus.RETRY_IN_PROGRESS, null, now);
+        return true;
+    }
+
+    private void applied(Transaction tx, TransactionStatus from, TransactionStatus to,
+                         LocalDateTime completedAt, LocalDateTime now) {
+        tx.setStatus(to);
+        tx.setUpdatedAt(now);
+        if (completedAt != null) {
+            tx.setCompletedAt(completedAt);
+        }
+        if (tx.getVersion() != null) {
+            tx.setVersion(tx.getVersion() + 1);
+        }
+        transactionEvents.statusChanged(tx, from);
+    }
+}
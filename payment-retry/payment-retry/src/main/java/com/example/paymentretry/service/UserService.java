@@ -7,8 +7,8 @@ import com.example.paymentretry.model.Role;
 import com.example.paymentretry.model.User;
 import com.example.paymentretry.payload.CustomApiResponse;
 import com.example.paymentretry.payload.PagedResponse;
+import com.example.paymentretry.payload.UserSummary;
 import com.example.paymentretry.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
 
@@ -82,15 +83,16 @@ public class UserService {
     }
 
     /** GET /users */
-    public ResponseEntity<CustomApiResponse<PagedResponse<User>>> getAllUsers(String email, int page, int size) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<CustomApiResponse<PagedResponse<UserSummary>>> getAllUsers(String email, int page, int size) {
         try {
             User admin = requireUserByEmail(email);
             requireAdmin(admin);
 
             Pageable pg = PageRequest.of(page, size);
-            Page<User> users = userRepository.findAll(pg);
+            Page<UserSummary> users = userRepository.findSummaries(pg);
 
-            PagedResponse<User> resp = new PagedResponse<>(
+            PagedResponse<UserSummary> resp = new PagedResponse<>(
                     users.getContent(),
                     users.getNumber(),
                     users.getSize(),
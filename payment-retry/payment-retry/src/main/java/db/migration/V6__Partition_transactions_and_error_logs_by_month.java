@@ -0,0 +1,102 @@
+package db.migration;
+
+import com.example.paymentretry.repository.MonthlyPartitions;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts transactions and error_logs to monthly RANGE COLUMNS(created_at) partitions,
+ * from the oldest row's month to three months ahead (PartitionMaintenanceService keeps
+ * extending that). Written in Java because the partition list depends on the data and
+ * the foreign keys to drop have generated names on databases first built by Hibernate.
+ * <p>
+ * MySQL requires every unique key to include the partitioning column and does not allow
+ * foreign keys on partitioned tables, so created_at becomes NOT NULL and part of the
+ * primary key, and the constraints from and to both tables are dropped. The ALTERs
+ * rebuild the tables; on large installations run this in a maintenance window.
+ */
+public class V6__Partition_transactions_and_error_logs_by_month extends BaseJavaMigration {
+    private static final int MONTHS_AHEAD = 3;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // DDL commits implicitly in MySQL anyway
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection con = context.getConnection();
+        try (Statement st = con.createStatement()) {
+            for (String[] fk : foreignKeys(con)) {
+                st.execute("ALTER TABLE " + fk[0] + " DROP FOREIGN KEY " + fk[1]);
+            }
+
+            st.execute("UPDATE transactions SET created_at = COALESCE(updated_at, NOW(6)) WHERE created_at IS NULL");
+            st.execute("""
+                    UPDATE error_logs e
+                      LEFT JOIN transactions t ON t.id = e.transaction_id
+                       SET e.created_at = COALESCE(t.created_at, NOW(6))
+                     WHERE e.created_at IS NULL
+                    """);
+
+            for (String table : MonthlyPartitions.TABLES) {
+                if (isPartitioned(con, table)) {
+                    continue;
+                }
+                st.execute("ALTER TABLE " + table
+                        + " MODIFY created_at DATETIME(6) NOT NULL, DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+                st.execute("ALTER TABLE " + table + " PARTITION BY RANGE COLUMNS (created_at) ("
+                        + MonthlyPartitions.definitions(firstMonth(con, table), YearMonth.now().plusMonths(MONTHS_AHEAD))
+                        + ")");
+            }
+        }
+    }
+
+    private static List<String[]> foreignKeys(Connection con) throws SQLException {
+        var fks = new ArrayList<String[]>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("""
+                     SELECT TABLE_NAME, CONSTRAINT_NAME
+                       FROM information_schema.REFERENTIAL_CONSTRAINTS
+                      WHERE CONSTRAINT_SCHEMA = DATABASE()
+                        AND (TABLE_NAME IN ('transactions', 'error_logs')
+                             OR REFERENCED_TABLE_NAME IN ('transactions', 'error_logs'))
+                     """)) {
+            while (rs.next()) {
+                fks.add(new String[]{rs.getString(1), rs.getString(2)});
+            }
+        }
+        return fks;
+    }
+
+    private static boolean isPartitioned(Connection con, String table) throws SQLException {
+        try (var ps = con.prepareStatement("""
+                SELECT COUNT(*)
+                  FROM information_schema.PARTITIONS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                """)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static YearMonth firstMonth(Connection con, String table) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(created_at) FROM " + table)) {
+            Timestamp min = rs.next() ? rs.getTimestamp(1) : null;
+            return min != null ? YearMonth.from(min.toLocalDateTime()) : YearMonth.now();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Secondary indexes for every repository query that had none, plus a DATE(created_at)
+ * column for the daily trend. Databases that were first built by ddl-auto may already
+ * carry some of these (the entities declare them too), so each one is only added when an
+ * index of that name is missing.
+ */
+public class V7__Index_pack_for_hot_queries extends BaseJavaMigration {
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection con = context.getConnection();
+
+        // callback resolution by gateway reference
+        addIndex(con, "transactions", "idx_transactions_external_ref", "external_reference_id");
+        // listings filtered by user and status together
+        addIndex(con, "transactions", "idx_transactions_user_status_created_id", "user_id, status, created_at, id");
+        // daily trend: the index holds date, status and (via the primary key) created_at, so
+        // the GROUP BY reads the index in order and never touches the rows
+        if (!hasColumn(con, "transactions", "created_date")) {
+            execute(con, "ALTER TABLE transactions ADD COLUMN created_date DATE GENERATED ALWAYS AS (DATE(created_at)) VIRTUAL");
+        }
+        addIndex(con, "transactions", "idx_transactions_created_date_status", "created_date, status");
+
+        addIndex(con, "retry_configurations", "idx_retry_configurations_next_retry", "next_retry_time, current_attempts");
+        // retry success rate: attempts > 0, joined back to transactions by id
+        addIndex(con, "retry_configurations", "idx_retry_configurations_attempts", "current_attempts, transaction_id");
+
+        // per-transaction error history (also what the dropped foreign key used to index)
+        addIndex(con, "error_logs", "idx_error_logs_transaction_created", "transaction_id, created_at");
+
+        addIndex(con, "payment_methods", "idx_payment_methods_user_priority", "user_id, priority, id");
+        addIndex(con, "idempotency_keys", "idx_idempotency_keys_expires", "expires_at");
+        // unfiltered dead-letter listing, newest first
+        addIndex(con, "dead_letters", "idx_dead_letters_parked_id", "dead_lettered_at, id");
+    }
+
+    private static void addIndex(Connection con, String table, String name, String columns) throws SQLException {
+        try (var ps = con.prepareStatement("""
+                SELECT COUNT(*)
+                  FROM information_schema.STATISTICS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?
+                """)) {
+            ps.setString(1, table);
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    return;
+                }
+            }
+        }
+        execute(con, "ALTER TABLE " + table + " ADD INDEX " + name + " (" + columns + "), ALGORITHM=INPLACE, LOCK=NONE");
+    }
+
+    private static boolean hasColumn(Connection con, String table, String column) throws SQLException {
+        try (var ps = con.prepareStatement("""
+                SELECT COUNT(*)
+                  FROM information_schema.COLUMNS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?
+                """)) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- created_at is when the error happened; the write-behind buffer can insert the row much
+-- later, so the analytics rollups find new error logs by the time they were inserted.
+-- Existing rows get the migration time, which makes the next rollup run rebuild their hours once.
+ALTER TABLE error_logs
+    ADD COLUMN inserted_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    ADD INDEX idx_error_logs_inserted_at (inserted_at);
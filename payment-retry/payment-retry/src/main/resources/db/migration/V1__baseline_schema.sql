@@ -0,0 +1,89 @@
+-- Baseline schema as previously generated by hibernate ddl-auto.
+-- Existing databases are baselined at this version and skip it.
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    phone       VARCHAR(255) NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    role        VARCHAR(32)  NOT NULL,
+    enabled     BIT(1)       NOT NULL,
+    created_at  DATETIME(6),
+    updated_at  DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS payment_methods (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id     BIGINT       NOT NULL,
+    method_name VARCHAR(255) NOT NULL,
+    details     VARCHAR(255) NOT NULL,
+    priority    INT          NOT NULL,
+    is_default  BIT(1)       NOT NULL,
+    created_at  DATETIME(6),
+    updated_at  DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_payment_methods_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id                    BIGINT         NOT NULL AUTO_INCREMENT,
+    user_id               BIGINT         NOT NULL,
+    amount                DECIMAL(10, 2) NOT NULL,
+    currency              VARCHAR(3)     NOT NULL,
+    status                VARCHAR(32)    NOT NULL,
+    gateway               VARCHAR(255)   NOT NULL,
+    external_reference_id VARCHAR(255),
+    payment_method_id     BIGINT,
+    created_at            DATETIME(6),
+    updated_at            DATETIME(6),
+    completed_at          DATETIME(6),
+    PRIMARY KEY (id),
+    INDEX idx_transactions_created_id (created_at, id),
+    INDEX idx_transactions_user_created_id (user_id, created_at, id),
+    INDEX idx_transactions_status_created_id (status, created_at, id),
+    CONSTRAINT fk_transactions_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS retry_configurations (
+    id               BIGINT      NOT NULL AUTO_INCREMENT,
+    transaction_id   BIGINT      NOT NULL,
+    max_retries      INT         NOT NULL,
+    retry_interval   BIGINT      NOT NULL,
+    strategy         VARCHAR(32) NOT NULL,
+    current_attempts INT         NOT NULL,
+    next_retry_time  DATETIME(6),
+    created_at       DATETIME(6),
+    updated_at       DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_retry_configurations_transaction UNIQUE (transaction_id),
+    CONSTRAINT fk_retry_configurations_transaction FOREIGN KEY (transaction_id) REFERENCES transactions (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS error_logs (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    transaction_id BIGINT       NOT NULL,
+    error_code     VARCHAR(255) NOT NULL,
+    error_message  TEXT         NOT NULL,
+    retry_eligible BIT(1),
+    retry_attempt  INT,
+    created_at     DATETIME(6),
+    PRIMARY KEY (id),
+    INDEX idx_error_logs_created_id (created_at, id),
+    INDEX idx_error_logs_code_created_id (error_code, created_at, id),
+    CONSTRAINT fk_error_logs_transaction FOREIGN KEY (transaction_id) REFERENCES transactions (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id              BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id         BIGINT       NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    transaction_id  BIGINT,
+    created_at      DATETIME(6),
+    expires_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_idempotency_keys_user_key UNIQUE (user_id, idempotency_key)
+) ENGINE = InnoDB;
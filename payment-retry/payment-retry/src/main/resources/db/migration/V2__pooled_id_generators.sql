@@ -0,0 +1,18 @@
+-- Table-backed id generator used by the pooled-lo optimizer (allocationSize = 50).
+-- Each row holds the first id of the next block to hand out, so seeding it just
+-- past the current maximum keeps new ids clear of rows written under IDENTITY.
+
+CREATE TABLE IF NOT EXISTS id_generators (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT       NOT NULL,
+    PRIMARY KEY (sequence_name)
+) ENGINE = InnoDB;
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'transactions', COALESCE(MAX(id), 0) + 1 FROM transactions
+UNION ALL
+SELECT 'retry_configurations', COALESCE(MAX(id), 0) + 1 FROM retry_configurations
+UNION ALL
+SELECT 'error_logs', COALESCE(MAX(id), 0) + 1 FROM error_logs
+UNION ALL
+SELECT 'payment_methods', COALESCE(MAX(id), 0) + 1 FROM payment_methods;
@@ -0,0 +1,8 @@
+-- @Version columns for optimistic locking. Existing rows start at 0 so Hibernate
+-- treats them as persistent (a NULL version would look like an unsaved entity).
+
+ALTER TABLE transactions
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE retry_configurations
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
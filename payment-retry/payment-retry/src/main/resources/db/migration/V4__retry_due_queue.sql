@@ -0,0 +1,18 @@
+-- Queue of actionable retries: a row per transaction while a retry is waiting to run.
+-- No foreign key, so rows can be dropped independently of transaction history.
+
+CREATE TABLE IF NOT EXISTS retry_due (
+    transaction_id BIGINT      NOT NULL,
+    due_at         DATETIME(6) NOT NULL,
+    PRIMARY KEY (transaction_id),
+    INDEX idx_retry_due_due_at (due_at)
+) ENGINE = InnoDB;
+
+-- Seed with what the old join-based scheduler query would still pick up.
+INSERT INTO retry_due (transaction_id, due_at)
+SELECT rc.transaction_id, COALESCE(rc.next_retry_time, NOW(6))
+  FROM retry_configurations rc
+  JOIN transactions t ON t.id = rc.transaction_id
+ WHERE rc.current_attempts < rc.max_retries
+   AND (t.status = 'RETRY_SCHEDULED'
+        OR (t.status = 'FAILED' AND rc.next_retry_time IS NOT NULL));
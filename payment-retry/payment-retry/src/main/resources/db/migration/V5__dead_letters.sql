@@ -0,0 +1,29 @@
+-- Parking lot for transactions that failed with their retry budget spent.
+
+CREATE TABLE IF NOT EXISTS dead_letters (
+    id               BIGINT         NOT NULL AUTO_INCREMENT,
+    transaction_id   BIGINT         NOT NULL,
+    user_id          BIGINT         NOT NULL,
+    gateway          VARCHAR(255)   NOT NULL,
+    amount           DECIMAL(10, 2) NOT NULL,
+    currency         VARCHAR(3)     NOT NULL,
+    error_code       VARCHAR(255)   NOT NULL,
+    attempts         INT            NOT NULL,
+    dead_lettered_at DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_dead_letters_transaction UNIQUE (transaction_id),
+    INDEX idx_dead_letters_code_parked (error_code, dead_lettered_at),
+    INDEX idx_dead_letters_gateway_parked (gateway, dead_lettered_at)
+) ENGINE = InnoDB;
+
+-- Backfill exhausted failures, taking the error code from their latest error log.
+INSERT INTO dead_letters (transaction_id, user_id, gateway, amount, currency, error_code, attempts, dead_lettered_at)
+SELECT t.id, t.user_id, t.gateway, t.amount, t.currency,
+       COALESCE((SELECT e.error_code FROM error_logs e
+                  WHERE e.transaction_id = t.id
+                  ORDER BY e.created_at DESC, e.id DESC LIMIT 1), 'UNKNOWN_ERROR'),
+       rc.current_attempts, COALESCE(t.updated_at, NOW(6))
+  FROM transactions t
+  JOIN retry_configurations rc ON rc.transaction_id = t.id
+ WHERE t.status = 'FAILED'
+   AND rc.current_attempts >= rc.max_retries;
@@ -0,0 +1,52 @@
+-- Hourly rollups read by the analytics endpoints, kept by AnalyticsRollupService.
+-- The *_total tables hold the running all-time sums of the hourly rows.
+
+CREATE TABLE IF NOT EXISTS rollup_transactions_hourly (
+    bucket_hour DATETIME     NOT NULL,
+    gateway     VARCHAR(255) NOT NULL,
+    status      VARCHAR(255) NOT NULL,
+    tx_count    BIGINT       NOT NULL,
+    PRIMARY KEY (bucket_hour, gateway, status)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS rollup_error_codes_hourly (
+    bucket_hour DATETIME     NOT NULL,
+    error_code  VARCHAR(255) NOT NULL,
+    error_count BIGINT       NOT NULL,
+    PRIMARY KEY (bucket_hour, error_code)
+) ENGINE = InnoDB;
+
+-- attempt is retry_configurations.current_attempts of the transactions created in the hour
+CREATE TABLE IF NOT EXISTS rollup_retry_outcomes_hourly (
+    bucket_hour DATETIME     NOT NULL,
+    attempt     INT          NOT NULL,
+    status      VARCHAR(255) NOT NULL,
+    tx_count    BIGINT       NOT NULL,
+    PRIMARY KEY (bucket_hour, attempt, status)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS rollup_error_codes_total (
+    error_code  VARCHAR(255) NOT NULL,
+    error_count BIGINT       NOT NULL,
+    PRIMARY KEY (error_code),
+    INDEX idx_rollup_error_codes_total_count (error_count)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS rollup_retry_outcomes_total (
+    attempt  INT          NOT NULL,
+    status   VARCHAR(255) NOT NULL,
+    tx_count BIGINT       NOT NULL,
+    PRIMARY KEY (attempt, status)
+) ENGINE = InnoDB;
+
+-- NULL processed_until makes the first run backfill every hour
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name            VARCHAR(64) NOT NULL,
+    processed_until DATETIME(6) NULL,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
+
+INSERT INTO rollup_watermarks (name, processed_until) VALUES ('analytics', NULL);
+
+-- finds the hours whose transactions changed since the last run
+ALTER TABLE transactions ADD INDEX idx_transactions_updated_at (updated_at);
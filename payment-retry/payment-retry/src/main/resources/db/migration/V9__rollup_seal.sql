@@ -0,0 +1,3 @@
+-- Hours starting before this are frozen in the analytics rollups: archival and partition
+-- expiry raise it before deleting source rows, so rebuilds never recount what they moved out.
+INSERT INTO rollup_watermarks (name, processed_until) VALUES ('sealed', NULL);
@@ -0,0 +1,145 @@
+package com.example.paymentretry;
+
+import com.example.paymentretry.model.PaymentMethod;
+import com.example.paymentretry.model.Role;
+import com.example.paymentretry.model.Transaction;
+import com.example.paymentretry.model.TransactionStatus;
+import com.example.paymentretry.model.User;
+import com.example.paymentretry.repository.PaymentMethodRepository;
+import com.example.paymentretry.repository.TransactionRepository;
+import com.example.paymentretry.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Insert throughput of the old IDENTITY write pattern (one INSERT plus key read per row)
+ * against the pooled table generator with Hibernate JDBC batching.
+ * Needs the full runtime (MySQL): {@code mvn test -Dbenchmark=true -Dtest=IdGenerationBenchmarkTest}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class IdGenerationBenchmarkTest {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5000);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PaymentMethodRepository paymentMethodRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+    private PaymentMethod pm;
+
+    @BeforeEach
+    void setUp() {
+        String tag = UUID.randomUUID().toString();
+        user = userRepository.save(new User(null, "bench", "bench-" + tag + "@example.com", "0000000000",
+                "x", Role.USER, true, null, null));
+        pm = paymentMethodRepository.save(new PaymentMethod.Builder()
+                .user(user).methodName("bench").details("bench").priority(1).isDefault(false).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_id = ?", user.getId());
+        paymentMethodRepository.delete(pm);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void insertThroughput() {
+        // warm up connections, statement caches and the generator block
+        identityStyleInsert(200);
+        pooledBatchInsert(200);
+
+        long identityNanos = identityStyleInsert(ROWS);
+        long pooledNanos = pooledBatchInsert(ROWS);
+
+        System.out.printf("IDENTITY-style row-by-row: %,d rows in %,d ms (%,.0f rows/s)%n",
+                ROWS, identityNanos / 1_000_000, ROWS / (identityNanos / 1e9));
+        System.out.printf("pooled + JDBC batching:   %,d rows in %,d ms (%,.0f rows/s)%n",
+                ROWS, pooledNanos / 1_000_000, ROWS / (pooledNanos / 1e9));
+
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE user_id = ?", Long.class, user.getId());
+        assertEquals(2L * (ROWS + 200), count);
+    }
+
+    private long identityStyleInsert(int rows) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < rows; i++) {
+                var keys = new GeneratedKeyHolder();
+                var now = Timestamp.valueOf(LocalDateTime.now());
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement("""
+                            INSERT INTO transactions
+                                (id, user_id, amount, currency, status, gateway, external_reference_id,
+                                 payment_method_id, created_at, updated_at)
+                            VALUES (NULL, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                            """, Statement.RETURN_GENERATED_KEYS);
+                    ps.setLong(1, user.getId());
+                    ps.setBigDecimal(2, BigDecimal.TEN);
+                    ps.setString(3, "USD");
+                    ps.setString(4, TransactionStatus.PENDING.name());
+                    ps.setString(5, "BENCHMARK");
+                    ps.setString(6, UUID.randomUUID().toString());
+                    ps.setLong(7, pm.getId());
+                    ps.setTimestamp(8, now);
+                    ps.setTimestamp(9, now);
+                    return ps;
+                }, keys);
+            }
+            // rows written this way bypass the generator, so push it past them
+            jdbcTemplate.update("""
+                    UPDATE id_generators
+                       SET next_val = GREATEST(next_val, (SELECT MAX(id) + 1 FROM transactions))
+                     WHERE sequence_name = 'transactions'
+                    """);
+        });
+        return System.nanoTime() - start;
+    }
+
+    private long pooledBatchInsert(int rows) {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> txs = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                txs.add(Transaction.builder()
+                        .user(user)
+                        .amount(BigDecimal.TEN)
+                        .currency("USD")
+                        .status(TransactionStatus.PENDING)
+                        .gateway("BENCHMARK")
+                        .externalReferenceId(UUID.randomUUID().toString())
+                        .paymentMethodId(pm.getId())
+                        .build());
+            }
+            transactionRepository.saveAll(txs);
+        });
+        return System.nanoTime() - start;
+    }
+}
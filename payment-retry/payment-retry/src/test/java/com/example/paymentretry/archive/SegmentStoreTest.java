@@ -0,0 +1,103 @@
+package com.example.paymentretry.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentStoreTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsRowsById() throws IOException {
+        var store = new SegmentStore("transactions", dir, 2);
+        store.append(rows(1, 5));
+
+        for (long id = 1; id <= 5; id++) {
+            var row = store.findById(id).orElseThrow();
+            assertEquals(id, ((Number) row.get("id")).longValue());
+            assertEquals(BASE.plusHours(id).toString(), row.get("created_at"));
+            assertEquals(new BigDecimal("100.00"), row.get("amount"));
+            assertEquals("SUCCESS", row.get("status"));
+        }
+        assertFalse(store.findById(6).isPresent());
+        assertFalse(store.findById(0).isPresent());
+    }
+
+    @Test
+    void findsByCreatedAtAcrossSegmentsInIdOrder() throws IOException {
+        var store = new SegmentStore("transactions", dir, 2);
+        store.append(rows(1, 5));
+        store.append(rows(6, 10));
+
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L),
+                ids(store.findByCreatedAt(BASE.plusHours(3), BASE.plusHours(8), 0, 100)));
+        // afterId and limit page through the same range
+        assertEquals(List.of(5L, 6L),
+                ids(store.findByCreatedAt(BASE.plusHours(3), BASE.plusHours(8), 4, 2)));
+        assertTrue(store.findByCreatedAt(BASE.plusDays(1), BASE.plusDays(2), 0, 100).isEmpty());
+    }
+
+    @Test
+    void reopensSealedSegmentsAndDropsUnsealedOnes() throws IOException {
+        var store = new SegmentStore("transactions", dir, 3);
+        store.append(rows(1, 4));
+        Files.write(dir.resolve("0000000001.seg"), new byte[]{1, 2, 3});
+        Files.write(dir.resolve("0000000002.seg.tmp"), new byte[]{1});
+
+        var reopened = new SegmentStore("transactions", dir, 3);
+        assertEquals(1, reopened.segmentCount());
+        assertFalse(Files.exists(dir.resolve("0000000001.seg")));
+        assertFalse(Files.exists(dir.resolve("0000000002.seg.tmp")));
+        assertEquals(new BigDecimal("100.00"), reopened.findById(4).orElseThrow().get("amount"));
+
+        reopened.append(rows(5, 6));
+        assertEquals(2, reopened.segmentCount());
+        assertTrue(reopened.findById(6).isPresent());
+    }
+
+    @Test
+    void resolvesARowArchivedTwiceToTheNewestCopy() throws IOException {
+        var store = new SegmentStore("transactions", dir, 2);
+        store.append(rows(1, 3));
+        var again = rows(3, 3);
+        again.get(0).put("status", "FAILED");
+        store.append(again);
+
+        assertEquals("FAILED", store.findById(3).orElseThrow().get("status"));
+        assertEquals(List.of(2L, 3L), ids(store.findByCreatedAt(BASE, BASE.plusDays(1), 1, 100)));
+    }
+
+    private static List<Map<String, Object>> rows(long fromId, long toId) {
+        var rows = new ArrayList<Map<String, Object>>();
+        for (long id = fromId; id <= toId; id++) {
+            var row = new LinkedHashMap<String, Object>();
+            row.put("id", id);
+            row.put("created_at", Timestamp.valueOf(BASE.plusHours(id)));
+            row.put("amount", new BigDecimal("100.00"));
+            row.put("status", "SUCCESS");
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(r -> ((Number) r.get("id")).longValue()).toList();
+    }
+}
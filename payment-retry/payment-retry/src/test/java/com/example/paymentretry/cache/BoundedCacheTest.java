@@ -0,0 +1,95 @@
+package com.example.paymentretry.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        var cache = new BoundedCache<String, Integer>(2, 0);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void dropsExpiredEntriesOnAccess() throws InterruptedException {
+        var cache = new BoundedCache<String, Integer>(10, 20);
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a"));
+        Thread.sleep(40);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void putIfAbsentKeepsTheLiveEntry() {
+        var cache = new BoundedCache<String, Integer>(10, 0);
+        assertTrue(cache.putIfAbsent("a", 1));
+        assertFalse(cache.putIfAbsent("a", 2));
+        assertEquals(1, cache.get("a"));
+
+        assertEquals(1, cache.remove("a"));
+        assertTrue(cache.putIfAbsent("a", 3));
+        assertEquals(3, cache.get("a"));
+    }
+
+    @Test
+    void rejectsANonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<String, Integer>(0, 0));
+    }
+
+    @Test
+    void onlyOneConcurrentPutIfAbsentWins() throws Exception {
+        int threads = 8;
+        int keys = 10_000;
+        var cache = new BoundedCache<Integer, Integer>(keys, 0);
+        var start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> wins = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                wins.add(pool.submit(() -> {
+                    start.await();
+                    int won = 0;
+                    for (int k = 0; k < keys; k++) {
+                        if (cache.putIfAbsent(k, thread)) {
+                            won++;
+                        }
+                    }
+                    return won;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (var f : wins) {
+                total += f.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(keys, total);
+            assertEquals(keys, cache.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.paymentretry.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwo() {
+        assertEquals(8, new RingBuffer<Integer>(5).capacity());
+        assertEquals(8, new RingBuffer<Integer>(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<Integer>(1));
+    }
+
+    @Test
+    void isFifoAndRefusesOffersWhenFull() {
+        var buffer = new RingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void drainToStopsAtMax() {
+        var buffer = new RingBuffer<Integer>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(List.of(0, 1, 2), drained);
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThrows(NullPointerException.class, () -> new RingBuffer<Integer>(4).offer(null));
+    }
+
+    @Test
+    void deliversEveryItemExactlyOnceAcrossProducersAndConsumers() throws Exception {
+        int producers = 4;
+        int consumers = 3;
+        int perProducer = 20_000;
+        var buffer = new RingBuffer<Integer>(64);
+        var seen = ConcurrentHashMap.<Integer>newKeySet();
+        var duplicates = new AtomicInteger();
+        var consumed = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    while (consumed.get() < producers * perProducer) {
+                        Integer item = buffer.poll();
+                        if (item == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        if (!seen.add(item)) {
+                            duplicates.incrementAndGet();
+                        }
+                        consumed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, duplicates.get());
+        assertEquals(producers * perProducer, seen.size());
+        assertTrue(buffer.isEmpty());
+    }
+}
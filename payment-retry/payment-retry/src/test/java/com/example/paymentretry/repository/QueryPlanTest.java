@@ -0,0 +1,168 @@
+package com.example.paymentretry.repository;
+
+import com.example.paymentretry.model.TransactionStatus;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Plan regression checks for the hot query paths, run against the migrated schema. Each case
+ * calls the real repository method; the statements it sends are recorded at the driver by
+ * {@link RecordingQueryInterceptor}, values included, and EXPLAINed as sent.
+ * Needs the configured MySQL: {@code mvn test -Dmysql=true -Dtest=QueryPlanTest}.
+ * <p>
+ * No table in a plan may be read with a full scan, and every one must read through an
+ * index. Unfiltered listings can only avoid a full scan by reading an index in order, so
+ * for those the index is also checked to exist with the right leading columns.
+ */
+@DataJpaTest(properties = "spring.datasource.hikari.data-source-properties.queryInterceptors="
+        + "com.example.paymentretry.repository.RecordingQueryInterceptor")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "mysql", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 2, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionRepository transactions;
+    @Autowired
+    private ErrorLogRepository errorLogs;
+    @Autowired
+    private RetryConfigurationRepository retryConfigurations;
+    @Autowired
+    private RetryDueRepository retryDue;
+    @Autowired
+    private PaymentMethodRepository paymentMethods;
+    @Autowired
+    private DeadLetterRepository deadLetters;
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecords;
+    @Autowired
+    private UserRepository users;
+
+    Stream<Arguments> repositoryCalls() {
+        return Stream.of(
+                call("callback lookup by reference", () -> transactions.findByExternalReferenceId("ref-1")),
+                call("callback batch lookup by reference",
+                        () -> transactions.findByExternalReferenceIdIn(List.of("ref-1", "ref-2"))),
+                call("user version page", () -> transactions.findVersions(1L, null, PageRequest.of(0, 20))),
+                call("status version page",
+                        () -> transactions.findVersions(null, TransactionStatus.FAILED, PageRequest.of(0, 20))),
+                call("user and status version page",
+                        () -> transactions.findVersions(1L, TransactionStatus.FAILED, PageRequest.of(0, 20))),
+                call("unfiltered version page", () -> transactions.findVersions(null, null, PageRequest.of(0, 20))),
+                call("page bodies", () -> transactions.findResponsesByIdIn(List.of(1L, 2L, 3L))),
+                call("user keyset page", () -> transactions.findResponsesAfter(
+                        1L, null, CreatedAtRange.MAX, Long.MAX_VALUE, PageRequest.of(0, 21))),
+                call("status keyset page", () -> transactions.findResponsesAfter(
+                        null, TransactionStatus.FAILED, FROM, 100L, PageRequest.of(0, 21))),
+                call("unfiltered keyset page", () -> transactions.findResponsesAfter(
+                        null, null, CreatedAtRange.MAX, Long.MAX_VALUE, PageRequest.of(0, 21))),
+                call("status count", () -> transactions.countFiltered(null, TransactionStatus.PENDING)),
+                call("user count", () -> transactions.countFiltered(1L, null)),
+                call("status and date range",
+                        () -> transactions.findByStatusAndDateRange(TransactionStatus.SUCCESS, FROM, TO)),
+                call("retry configs for due batch",
+                        () -> retryConfigurations.findWithTransactionByTransactionIdIn(List.of(1L, 2L, 3L))),
+                call("retry config of a transaction", () -> retryConfigurations.findByTransactionId(1L)),
+                call("due retries", () -> retryDue.findDue(FROM, PageRequest.of(0, 500))),
+                call("error logs by code and dates", () -> errorLogs.findResponsesAfter(
+                        "CARD_DECLINED", FROM, TO, TO, Long.MAX_VALUE, PageRequest.of(0, 21))),
+                call("error logs by dates", () -> errorLogs.findResponsesAfter(
+                        null, FROM, TO, TO, Long.MAX_VALUE, PageRequest.of(0, 21))),
+                call("error log count by code", () -> errorLogs.countFiltered("CARD_DECLINED", FROM, TO)),
+                call("payment methods of a user", () -> paymentMethods.findByUserIdOrderByPriorityAsc(1L)),
+                call("dead letters by error code", () -> deadLetters.findFiltered(
+                        "CARD_DECLINED", null, null, null, null, null, PageRequest.of(0, 20))),
+                call("dead letters by gateway", () -> deadLetters.findFiltered(
+                        null, "STRIPE", null, null, null, null, PageRequest.of(0, 20))),
+                call("re-drive chunk", () -> deadLetters.findFilteredAfter(
+                        "CARD_DECLINED", null, null, null, null, null, 0L, PageRequest.of(0, 500))),
+                call("idempotency key lookup", () -> idempotencyRecords.findByUserIdAndIdempotencyKey(1L, "key-1")),
+                call("expired idempotency keys", () -> idempotencyRecords.deleteExpired(FROM)),
+                call("user by email", () -> users.findByEmail("a@example.com"))
+        );
+    }
+
+    static Stream<Arguments> orderedListings() {
+        return Stream.of(
+                Arguments.of("transactions", List.of("created_at", "id")),
+                Arguments.of("error_logs", List.of("created_at", "id")),
+                Arguments.of("error_logs", List.of("error_code")),
+                Arguments.of("dead_letters", List.of("dead_lettered_at", "id"))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryCalls")
+    void repositoryQueryReadsThroughAnIndex(String name, Runnable call) {
+        List<String> statements = RecordingQueryInterceptor.record(call).stream()
+                .map(String::strip)
+                .filter(sql -> sql.regionMatches(true, 0, "select", 0, 6)
+                        || sql.regionMatches(true, 0, "delete", 0, 6)
+                        || sql.regionMatches(true, 0, "update", 0, 6))
+                .toList();
+        assertFalse(statements.isEmpty(), name + ": no statement was sent");
+
+        for (String sql : statements) {
+            List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql);
+            for (var row : plan) {
+                Object table = row.get("table");
+                if (table == null || table.toString().startsWith("<")) {
+                    continue;
+                }
+                if ("ALL".equals(row.get("type"))) {
+                    fail(name + ": full scan of " + table + "; plan " + plan + " for " + sql);
+                }
+                if (row.get("key") == null) {
+                    fail(name + ": " + table + " is read without an index; plan " + plan + " for " + sql);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0} ordered by {1}")
+    @MethodSource("orderedListings")
+    void orderedListingHasAnIndex(String table, List<String> columns) {
+        List<Map<String, Object>> stats = jdbcTemplate.queryForList("""
+                SELECT INDEX_NAME, COLUMN_NAME
+                  FROM information_schema.STATISTICS
+                 WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+                 ORDER BY INDEX_NAME, SEQ_IN_INDEX
+                """, table);
+        boolean found = stats.stream()
+                .map(r -> r.get("INDEX_NAME"))
+                .distinct()
+                .anyMatch(index -> {
+                    List<Object> cols = stats.stream()
+                            .filter(r -> index.equals(r.get("INDEX_NAME")))
+                            .map(r -> r.get("COLUMN_NAME"))
+                            .toList();
+                    return cols.size() >= columns.size() && cols.subList(0, columns.size()).equals(columns);
+                });
+        assertTrue(found, "no index on " + table + " starting with " + columns);
+    }
+
+    private static Arguments call(String name, Runnable call) {
+        return Arguments.of(name, call);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.paymentretry.repository;
+
+import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.Query;
+import com.mysql.cj.interceptors.QueryInterceptor;
+import com.mysql.cj.log.Log;
+import com.mysql.cj.protocol.Resultset;
+import com.mysql.cj.protocol.ServerSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Driver-level recorder of the SQL the application really sends, with the bound values
+ * already in it (client-side prepared statements are interpolated before they go out).
+ * Installed through the {@code queryInterceptors} connection property; only records on a
+ * thread inside {@link #record}.
+ */
+public class RecordingQueryInterceptor implements QueryInterceptor {
+    private static final ThreadLocal<List<String>> RECORDING = new ThreadLocal<>();
+
+    static List<String> record(Runnable call) {
+        List<String> sent = new ArrayList<>();
+        RECORDING.set(sent);
+        try {
+            call.run();
+        } finally {
+            RECORDING.remove();
+        }
+        return sent;
+    }
+
+    @Override
+    public QueryInterceptor init(MysqlConnection conn, Properties props, Log log) {
+        return this;
+    }
+
+    @Override
+    public <T extends Resultset> T preProcess(Supplier<String> sql, Query interceptedQuery) {
+        List<String> sent = RECORDING.get();
+        if (sent != null) {
+            sent.add(sql.get());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean executeTopLevelOnly() {
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public <T extends Resultset> T postProcess(Supplier<String> sql, Query interceptedQuery,
+                                               T originalResultSet, ServerSession serverSession) {
+        return null;
+    }
+}